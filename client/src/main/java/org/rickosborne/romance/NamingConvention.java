@@ -2,6 +2,7 @@ package org.rickosborne.romance;
 
 import lombok.NonNull;
 import org.rickosborne.romance.util.StringStuff;
+import org.rickosborne.romance.util.TextNormalizer;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -12,6 +13,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -20,6 +22,8 @@ import static org.rickosborne.romance.util.StringStuff.FILE_NAME_MAX_LENGTH;
 import static org.rickosborne.romance.util.StringStuff.noLongerThan;
 
 public class NamingConvention {
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
     private final Map<String, String> replacements = readReplacements();
 
     public String fieldNameFromTexts(final String... texts) {
@@ -41,17 +45,17 @@ public class NamingConvention {
             .filter(StringStuff::nonBlank)
             .map(String::trim)
             .map(String::toLowerCase)
-            .map(s -> s.replaceAll("['\"`]+", "").replaceAll("[^\\da-z]+", "-"))
+            .map(TextNormalizer::fileNamePart)
             .collect(Collectors.joining("-")));
     }
 
     public String formatText(@NonNull final String text) {
         final String lower = Optional.ofNullable(replacements.get(text))
             .map(Stream::of)
-            .orElseGet(() -> Arrays.stream(text.toLowerCase().split("\\s+")))
+            .orElseGet(() -> Arrays.stream(WHITESPACE.split(text.toLowerCase())))
             .filter(StringStuff::nonBlank)
             .map(firstOrElse(v -> v, StringStuff::ucFirst))
-            .map(s -> s.replaceAll("[^a-zA-Z\\d]", ""))
+            .map(TextNormalizer::alphanumericOnly)
             .map(v -> replacements.getOrDefault(v, v))
             .collect(Collectors.joining(""));
         return replacements.getOrDefault(lower, lower);
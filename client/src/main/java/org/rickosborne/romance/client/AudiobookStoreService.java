@@ -7,12 +7,12 @@ import org.rickosborne.romance.client.response.Login;
 import org.rickosborne.romance.client.response.PlaybackPosition;
 import org.rickosborne.romance.client.response.UserInformation2;
 import retrofit2.Call;
-import retrofit2.Retrofit;
 import retrofit2.converter.jackson.JacksonConverterFactory;
 import retrofit2.http.GET;
 import retrofit2.http.Query;
 
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 
 import static org.rickosborne.romance.AudiobookStore.API_PATH;
@@ -20,6 +20,10 @@ import static org.rickosborne.romance.AudiobookStore.API_PATH;
 public interface AudiobookStoreService {
     Path CACHE_BASE_PATH = Path.of(".cache");
     String CACHE_KEY = "abs-api";
+    /**
+     * Book information includes the user's own progress and ratings, so it goes stale sooner.
+     */
+    Duration CACHE_TTL = Duration.ofDays(7);
     String TRACKING_HERPES = "OSType=android&Device=Google%20sdk_gphone64_arm64&OSVersion=12&AppVersion=v2.1.8.163%20Build%20154&RDId=309ad284-3a04-4314-8582-20901a50bf76";
     String PLAYBACK_POSITIONS_PATH = API_PATH + "PlaybackPositions.aspx?Method=GET&IsPodcast=false&" + TRACKING_HERPES;
     String BOOKMARKS_PATH = API_PATH + "Bookmarks.aspx?Method=Get&IsPodcast=false&" + TRACKING_HERPES;
@@ -29,15 +33,19 @@ public interface AudiobookStoreService {
     String USER_INFORMATION2_PATH = API_PATH + "GetUserInformation2.aspx?" + TRACKING_HERPES;
 
     static AudiobookStoreService build() {
-        return new Retrofit.Builder()
-            .baseUrl(AudiobookStore.API_BASE)
-            .addConverterFactory(JacksonConverterFactory.create())
-            .build()
-            .create(AudiobookStoreService.class);
+        return ServiceRegistry.service(AudiobookStoreService.class, () -> ServiceRegistry
+            .retrofit(AudiobookStore.API_BASE, JacksonConverterFactory.create())
+            .create(AudiobookStoreService.class));
     }
 
     static CacheClient<AudiobookStoreService> buildCaching() {
-        return new CacheClient<>(build(), CACHE_BASE_PATH, CACHE_KEY);
+        final AudiobookStoreService service = build();
+        return ServiceRegistry.caching(AudiobookStoreService.class, () -> CacheClient.<AudiobookStoreService>builder()
+            .service(service)
+            .basePath(CACHE_BASE_PATH)
+            .cacheName(CACHE_KEY)
+            .ttl(CACHE_TTL)
+            .build());
     }
 
     @GET(BOOK_INFORMATION_PATH)
@@ -12,7 +12,6 @@ import org.rickosborne.romance.util.AuthorMerger;
 import org.rickosborne.romance.util.BookMerger;
 import org.slf4j.LoggerFactory;
 import retrofit2.Call;
-import retrofit2.Retrofit;
 import retrofit2.converter.jackson.JacksonConverterFactory;
 import retrofit2.http.GET;
 import retrofit2.http.Header;
@@ -21,6 +20,7 @@ import retrofit2.http.Query;
 import retrofit2.http.Streaming;
 
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 import java.util.function.UnaryOperator;
 
@@ -31,21 +31,30 @@ import static org.rickosborne.romance.util.StringStuff.nullIfBlank;
 public interface AudiobookStoreSuggestService {
     Path CACHE_BASE_PATH = Path.of(".cache");
     String CACHE_NAME = "abs";
+    Duration CACHE_TTL = Duration.ofDays(30);
     int DELAY_SECONDS = 5;
     String DOWNLOAD_PATH = "/DownloadFile";
     String MY_LIBRARY_PATH = "/Handlers/MyLibrary?handler=GetAudioFileDetails&Format=2";
     String SUGGEST_PATH = "/SearchSuggest?SearchType=100";
 
     static AudiobookStoreSuggestService build() {
-        return new Retrofit.Builder()
-            .baseUrl(AudiobookStore.SUGGEST_BASE)
-            .addConverterFactory(JacksonConverterFactory.create())
-            .build()
-            .create(AudiobookStoreSuggestService.class);
+        return ServiceRegistry.service(AudiobookStoreSuggestService.class, () -> ServiceRegistry
+            .retrofit(AudiobookStore.SUGGEST_BASE, JacksonConverterFactory.create())
+            .create(AudiobookStoreSuggestService.class));
     }
 
+    /**
+     * Built once and shared, as the lookups below use it on every call.
+     */
     static CacheClient<AudiobookStoreSuggestService> buildCaching() {
-        return new CacheClient<>(build(), CACHE_BASE_PATH, CACHE_NAME, DELAY_SECONDS);
+        final AudiobookStoreSuggestService service = build();
+        return ServiceRegistry.caching(AudiobookStoreSuggestService.class, () -> CacheClient.<AudiobookStoreSuggestService>builder()
+            .service(service)
+            .basePath(CACHE_BASE_PATH)
+            .cacheName(CACHE_NAME)
+            .delay(Duration.ofSeconds(DELAY_SECONDS))
+            .ttl(CACHE_TTL)
+            .build());
     }
 
     @Streaming
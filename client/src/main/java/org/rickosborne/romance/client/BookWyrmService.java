@@ -11,7 +11,6 @@ import org.rickosborne.romance.db.DbJsonWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import retrofit2.Call;
-import retrofit2.Retrofit;
 import retrofit2.converter.jackson.JacksonConverterFactory;
 import retrofit2.converter.scalars.ScalarsConverterFactory;
 import retrofit2.http.Field;
@@ -36,25 +35,22 @@ public interface BookWyrmService {
     Logger log = LoggerFactory.getLogger(BookWyrmService.class);
 
     static BookWyrmService build(final BookWyrmConfig config) {
-        return new Retrofit.Builder()
-            .baseUrl(config.getApiBase())
-            .addConverterFactory(JacksonConverterFactory.create(DbJsonWriter.getJsonMapper()))
-            .client(buildOkHttpClient(config))
-            .build()
-            .create(BookWyrmService.class);
+        return ServiceRegistry.service(BookWyrmService.class, List.of("json", config), () -> ServiceRegistry
+            .retrofit(config.getApiBase(), JacksonConverterFactory.create(DbJsonWriter.getJsonMapper()), buildOkHttpClient(config))
+            .create(BookWyrmService.class));
     }
 
     static BookWyrmService buildForHtml(final BookWyrmConfig config) {
-        return new Retrofit.Builder()
-            .baseUrl(config.getApiBase())
-            .addConverterFactory(ScalarsConverterFactory.create())
-            .client(buildOkHttpClient(config))
-            .build()
-            .create(BookWyrmService.class);
+        return ServiceRegistry.service(BookWyrmService.class, List.of("html", config), () -> ServiceRegistry
+            .retrofit(config.getApiBase(), ScalarsConverterFactory.create(), buildOkHttpClient(config))
+            .create(BookWyrmService.class));
     }
 
+    /**
+     * Shares the connection pool with every other service, adding the auth headers.
+     */
     static OkHttpClient buildOkHttpClient(final BookWyrmConfig config) {
-        return new OkHttpClient.Builder()
+        return ServiceRegistry.client(builder -> builder
             .addInterceptor(chain -> {
                 final Request request = chain.request();
                 final Request patched = request.newBuilder()
@@ -69,8 +65,7 @@ public interface BookWyrmService {
             .connectTimeout(0, TimeUnit.SECONDS)
             .writeTimeout(0, TimeUnit.SECONDS)
             .readTimeout(0, TimeUnit.SECONDS)
-            .callTimeout(0, TimeUnit.SECONDS)
-            .build();
+            .callTimeout(0, TimeUnit.SECONDS));
     }
 
     @POST("/book/{bookId}/filelink/add")
@@ -1,7 +1,10 @@
 package org.rickosborne.romance.client;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.json.JsonMapper;
+import lombok.Builder;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
@@ -10,8 +13,23 @@ import retrofit2.Response;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -19,8 +37,24 @@ import java.util.regex.Pattern;
 import static org.rickosborne.romance.util.StringStuff.FILE_NAME_MAX_LENGTH;
 import static org.rickosborne.romance.util.StringStuff.noLongerThan;
 
+/**
+ * Caches the JSON bodies of a Retrofit service's responses by key, in memory and on disk.
+ * Both tiers are bounded by size: memory evicts the least recently used entries, and disk the
+ * oldest files.  Entries older than the TTL are fetched again.  Misses are spaced at least
+ * {@code delay} apart, counted from the previous fetch rather than slept before every one.
+ * Readers and writers are built once per response type and shared.  Safe to share between threads.
+ */
 @Slf4j
 public class CacheClient<S> {
+    public static final long DEFAULT_MAX_DISK_BYTES = 256L * 1024 * 1024;
+    public static final long DEFAULT_MAX_MEMORY_BYTES = 16L * 1024 * 1024;
+    private static final JsonMapper JSON_MAPPER = new JsonMapper();
+    private static final Map<Type, ObjectReader> READERS = new ConcurrentHashMap<>();
+    private static final Map<Type, ObjectWriter> WRITERS = new ConcurrentHashMap<>();
+
+    /**
+     * The file name used before entries were named by hash, still read so existing caches carry over.
+     */
     public static String encodeCacheKey(final String key) {
         // return Base64.getMimeEncoder().encodeToString(key.getBytes()).replaceAll("=+$", "");
         final Base64.Encoder encoder = Base64.getMimeEncoder().withoutPadding();
@@ -34,18 +68,71 @@ public class CacheClient<S> {
         return noLongerThan(FILE_NAME_MAX_LENGTH, sb.toString());
     }
 
+    private static String hashCacheKey(final String key) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("No SHA-256", e);
+        }
+    }
+
+    private static ObjectReader readerFor(final TypeReference<?> type) {
+        return READERS.computeIfAbsent(type.getType(), t -> JSON_MAPPER.readerFor(type));
+    }
+
+    private static ObjectWriter writerFor(final TypeReference<?> type) {
+        return WRITERS.computeIfAbsent(type.getType(), t -> JSON_MAPPER.writerFor(type));
+    }
+
+    @Getter
+    private final AtomicLong bytesRead = new AtomicLong();
+    @Getter
+    private final AtomicLong bytesWritten = new AtomicLong();
     @NonNull
     private final Path cachePath;
-    private final Integer delaySeconds;
+    /**
+     * The least time between two fetches, or null to fetch as fast as asked.
+     */
+    private final Duration delay;
+    /**
+     * Bytes on disk, counted on first use.
+     */
+    private long diskBytes = -1;
+    @Getter
+    private final AtomicLong evictions = new AtomicLong();
+    /**
+     * Held while waiting out the delay, so cache hits don't wait behind it.
+     */
+    private final Object fetchLock = new Object();
+    @Getter
+    private final AtomicLong hits = new AtomicLong();
+    private long lastFetchNanos = 0;
+    @Getter
+    private final long maxDiskBytes;
+    @Getter
+    private final long maxMemoryBytes;
+    private final Map<String, Entry> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes = 0;
+    @Getter
+    private final AtomicLong misses = new AtomicLong();
     @NonNull
     @Getter
     private final S service;
+    /**
+     * How long an entry stays fresh, or null for as long as it is kept.
+     */
+    @Getter
+    private final Duration ttl;
 
-    public CacheClient(
+    @Builder
+    private CacheClient(
         @NonNull final S service,
         @NonNull final Path basePath,
         @NonNull final String cacheName,
-        final Integer delaySeconds
+        final Duration delay,
+        final Duration ttl,
+        final Long maxMemoryBytes,
+        final Long maxDiskBytes
     ) {
         this.cachePath = basePath.resolve(cacheName);
         this.service = service;
@@ -55,7 +142,19 @@ public class CacheClient<S> {
                 throw new IllegalStateException("Could not create: " + cachePath);
             }
         }
-        this.delaySeconds = delaySeconds;
+        this.delay = delay;
+        this.ttl = ttl;
+        this.maxMemoryBytes = maxMemoryBytes == null ? DEFAULT_MAX_MEMORY_BYTES : maxMemoryBytes;
+        this.maxDiskBytes = maxDiskBytes == null ? DEFAULT_MAX_DISK_BYTES : maxDiskBytes;
+    }
+
+    public CacheClient(
+        @NonNull final S service,
+        @NonNull final Path basePath,
+        @NonNull final String cacheName,
+        final Integer delaySeconds
+    ) {
+        this(service, basePath, cacheName, delaySeconds == null ? null : Duration.ofSeconds(delaySeconds), null, null, null);
     }
 
     public CacheClient(
@@ -66,36 +165,82 @@ public class CacheClient<S> {
         this(service, basePath, cacheName, null);
     }
 
+    private void awaitTurn() {
+        if (delay == null) {
+            return;
+        }
+        synchronized (fetchLock) {
+            final long wait = lastFetchNanos == 0 ? 0 : lastFetchNanos + delay.toNanos() - System.nanoTime();
+            if (wait > 0) {
+                try {
+                    Thread.sleep(Duration.ofNanos(wait));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            lastFetchNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * The fresh cached body for the key, from memory or else disk, or null.
+     */
+    private byte[] cached(final String key, final File cacheFile) {
+        final long now = System.currentTimeMillis();
+        synchronized (this) {
+            final Entry entry = memory.get(key);
+            if (entry != null) {
+                if (isFresh(entry.savedAt, now)) {
+                    return entry.body;
+                }
+                forget(key);
+            }
+        }
+        File file = cacheFile;
+        if (!file.exists()) {
+            file = migrateLegacy(key, cacheFile);
+            if (file == null) {
+                return null;
+            }
+        }
+        if (!isFresh(file.lastModified(), now)) {
+            return null;
+        }
+        try {
+            final byte[] body = Files.readAllBytes(file.toPath());
+            remember(key, body, file.lastModified());
+            return body;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not read: " + file, e);
+        }
+    }
+
     public <T> T fetchFomCache(
         final TypeReference<T> type,
         final Function<S, Call<T>> clientCall,
         final String key
     ) {
-        final String fileName = encodeCacheKey(key) + ".json";
-        final File cacheFile = cachePath.resolve(fileName).toFile();
-        final JsonMapper jsonMapper = new JsonMapper();
-        if (cacheFile.exists()) {
+        final File cacheFile = cachePath.resolve(hashCacheKey(key) + ".json").toFile();
+        final byte[] cached = cached(key, cacheFile);
+        if (cached != null) {
             try {
-                return jsonMapper.readerFor(type).readValue(cacheFile);
+                final T result = readerFor(type).readValue(cached);
+                hits.incrementAndGet();
+                bytesRead.addAndGet(cached.length);
+                return result;
             } catch (IOException e) {
-                throw new RuntimeException("Could not read: " + cacheFile, e);
+                log.warn("Could not parse cached {}, fetching again: {}", key, e.getMessage());
             }
         }
+        misses.incrementAndGet();
         final Call<T> call = clientCall.apply(service);
         try {
-            if (this.delaySeconds != null) {
-                try {
-                    Thread.sleep(1000L * delaySeconds);
-                } catch (InterruptedException e) {
-                    // ignore
-                }
-            }
+            awaitTurn();
             final Response<T> response = call.execute();
             if (response.isSuccessful()) {
                 final T result = response.body();
-                jsonMapper.writerFor(type)
-                    .withDefaultPrettyPrinter()
-                    .writeValue(cacheFile, result);
+                final byte[] body = writerFor(type).writeValueAsBytes(result);
+                store(key, body, cacheFile);
                 return result;
             } else {
                 log.warn("Unable to fetch: " + key);
@@ -106,4 +251,98 @@ public class CacheClient<S> {
         }
         return null;
     }
+
+    private synchronized void forget(final String key) {
+        final Entry removed = memory.remove(key);
+        if (removed != null) {
+            memoryBytes -= removed.body.length;
+        }
+    }
+
+    private boolean isFresh(final long savedAt, final long now) {
+        return ttl == null || now - savedAt < ttl.toMillis();
+    }
+
+    /**
+     * Rename an entry from its old encoded name to its hashed one, returning the file, or null if there was none.
+     */
+    private File migrateLegacy(final String key, final File cacheFile) {
+        final File legacy = cachePath.resolve(encodeCacheKey(key) + ".json").toFile();
+        if (!legacy.exists()) {
+            return null;
+        }
+        try {
+            Files.move(legacy.toPath(), cacheFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            return cacheFile;
+        } catch (IOException e) {
+            log.debug("Could not move {}: {}", legacy, e.getMessage());
+            return legacy;
+        }
+    }
+
+    private synchronized void remember(final String key, final byte[] body, final long savedAt) {
+        forget(key);
+        if (body.length > maxMemoryBytes) {
+            return;
+        }
+        memory.put(key, new Entry(body, savedAt));
+        memoryBytes += body.length;
+        final Iterator<Entry> eldest = memory.values().iterator();
+        while (memoryBytes > maxMemoryBytes && eldest.hasNext()) {
+            memoryBytes -= eldest.next().body.length;
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void store(final String key, final byte[] body, final File cacheFile) throws IOException {
+        remember(key, body, System.currentTimeMillis());
+        final long previous = cacheFile.exists() ? cacheFile.length() : 0;
+        Files.write(cacheFile.toPath(), body);
+        bytesWritten.addAndGet(body.length);
+        trimDisk(body.length - previous);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s(%s hits=%d misses=%d read=%d written=%d evictions=%d)", getClass().getSimpleName(),
+            cachePath, hits.get(), misses.get(), bytesRead.get(), bytesWritten.get(), evictions.get());
+    }
+
+    /**
+     * Delete the oldest files until the cache fits on disk again.
+     */
+    private synchronized void trimDisk(final long added) {
+        if (diskBytes >= 0) {
+            diskBytes += added;
+            if (diskBytes <= maxDiskBytes) {
+                return;
+            }
+        }
+        final File[] files = cachePath.toFile().listFiles((dir, name) -> name.endsWith(".json"));
+        if (files == null) {
+            return;
+        }
+        diskBytes = 0;
+        for (final File file : files) {
+            diskBytes += file.length();
+        }
+        if (diskBytes <= maxDiskBytes) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (final File file : files) {
+            if (diskBytes <= maxDiskBytes) {
+                break;
+            }
+            final long length = file.length();
+            if (file.delete()) {
+                diskBytes -= length;
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private record Entry(byte[] body, long savedAt) {
+    }
 }
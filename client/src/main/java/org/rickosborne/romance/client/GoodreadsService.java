@@ -8,12 +8,12 @@ import org.rickosborne.romance.db.model.BookModel;
 import org.rickosborne.romance.util.BookMerger;
 import org.slf4j.LoggerFactory;
 import retrofit2.Call;
-import retrofit2.Retrofit;
 import retrofit2.converter.jackson.JacksonConverterFactory;
 import retrofit2.http.GET;
 import retrofit2.http.Query;
 
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
@@ -23,18 +23,24 @@ public interface GoodreadsService {
     String AUTO_COMPLETE_PATH = API_PATH + "book/auto_complete?format=json";
     Path CACHE_BASE_PATH = Path.of(".cache");
     String CACHE_KEY = "goodreads";
+    Duration CACHE_TTL = Duration.ofDays(90);
     int DELAY_SECONDS = 5;
 
     static GoodreadsService build() {
-        return new Retrofit.Builder()
-            .baseUrl(Goodreads.API_BASE)
-            .addConverterFactory(JacksonConverterFactory.create())
-            .build()
-            .create(GoodreadsService.class);
+        return ServiceRegistry.service(GoodreadsService.class, () -> ServiceRegistry
+            .retrofit(Goodreads.API_BASE, JacksonConverterFactory.create())
+            .create(GoodreadsService.class));
     }
 
     static CacheClient<GoodreadsService> buildCaching() {
-        return new CacheClient<>(build(), CACHE_BASE_PATH, CACHE_KEY, DELAY_SECONDS);
+        final GoodreadsService service = build();
+        return ServiceRegistry.caching(GoodreadsService.class, () -> CacheClient.<GoodreadsService>builder()
+            .service(service)
+            .basePath(CACHE_BASE_PATH)
+            .cacheName(CACHE_KEY)
+            .delay(Duration.ofSeconds(DELAY_SECONDS))
+            .ttl(CACHE_TTL)
+            .build());
     }
 
     @GET(AUTO_COMPLETE_PATH)
@@ -0,0 +1,133 @@
+package org.rickosborne.romance.client;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Builds each Retrofit service once per process, and has them all share one OkHttp connection
+ * pool and dispatcher, so bulk lookups reuse kept-alive connections (HTTP/2 where the server
+ * offers it) instead of paying for a new handshake per service or per call.
+ * Services needing their own headers or timeouts get a client derived from the shared one.
+ */
+@Slf4j
+public final class ServiceRegistry {
+    public static final int KEEP_ALIVE_MINUTES = 5;
+    public static final int MAX_IDLE_CONNECTIONS = 16;
+    public static final int MAX_REQUESTS = 64;
+    public static final int MAX_REQUESTS_PER_HOST = 8;
+    private static final OkHttpClient SHARED = buildShared();
+    private static final Map<Key, Object> services = new ConcurrentHashMap<>();
+
+    private static OkHttpClient buildShared() {
+        final Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+        return new OkHttpClient.Builder()
+            .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+            .dispatcher(dispatcher)
+            .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+            .retryOnConnectionFailure(true)
+            .build();
+    }
+
+    /**
+     * The caching client for the service type, building it on first use.
+     */
+    public static <S> CacheClient<S> caching(
+        @NonNull final Class<S> type,
+        @NonNull final Supplier<CacheClient<S>> builder
+    ) {
+        @SuppressWarnings("unchecked") final CacheClient<S> cacheClient = service(CacheClient.class, type, builder::get);
+        return cacheClient;
+    }
+
+    /**
+     * A client sharing the pool and dispatcher, with the customizations applied.
+     */
+    public static OkHttpClient client(@NonNull final Consumer<OkHttpClient.Builder> customizer) {
+        final OkHttpClient.Builder builder = SHARED.newBuilder();
+        customizer.accept(builder);
+        return builder.build();
+    }
+
+    public static OkHttpClient getHttpClient() {
+        return SHARED;
+    }
+
+    /**
+     * A Retrofit on the shared client.
+     */
+    public static Retrofit retrofit(
+        @NonNull final String baseUrl,
+        @NonNull final Converter.Factory converterFactory
+    ) {
+        return retrofit(baseUrl, converterFactory, SHARED);
+    }
+
+    public static Retrofit retrofit(
+        @NonNull final String baseUrl,
+        @NonNull final Converter.Factory converterFactory,
+        @NonNull final OkHttpClient client
+    ) {
+        return new Retrofit.Builder()
+            .baseUrl(baseUrl)
+            .addConverterFactory(converterFactory)
+            .client(client)
+            .build();
+    }
+
+    /**
+     * The service built for the type and discriminator, building it on first use.
+     * The discriminator tells apart services of one type built differently, such as for
+     * different configs, and may be null when there is only one.
+     */
+    public static <S> S service(
+        @NonNull final Class<S> type,
+        final Object discriminator,
+        @NonNull final Supplier<S> builder
+    ) {
+        final Key key = new Key(type, discriminator);
+        final Object existing = services.get(key);
+        if (existing != null) {
+            return type.cast(existing);
+        }
+        // Builders may ask for other services, such as a caching client for its service,
+        // so build under a reentrant lock rather than inside computeIfAbsent.
+        synchronized (services) {
+            final Object raced = services.get(key);
+            if (raced != null) {
+                return type.cast(raced);
+            }
+            log.debug("Building {}{}", type.getSimpleName(), discriminator == null ? "" : " for " + discriminator);
+            final S built = builder.get();
+            services.put(key, built);
+            return built;
+        }
+    }
+
+    public static <S> S service(
+        @NonNull final Class<S> type,
+        @NonNull final Supplier<S> builder
+    ) {
+        return service(type, null, builder);
+    }
+
+    private ServiceRegistry() {
+    }
+
+    private record Key(Class<?> type, Object discriminator) {
+    }
+}
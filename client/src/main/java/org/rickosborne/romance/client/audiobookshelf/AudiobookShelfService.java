@@ -6,8 +6,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NonNull;
 import okhttp3.OkHttpClient;
+import org.rickosborne.romance.client.ServiceRegistry;
 import retrofit2.Call;
-import retrofit2.Retrofit;
 import retrofit2.converter.jackson.JacksonConverterFactory;
 import retrofit2.http.Body;
 import retrofit2.http.GET;
@@ -25,21 +25,19 @@ public interface AudiobookShelfService {
     static AudiobookShelfService build(@NonNull final AudiobookShelfConfig config) {
         final String apiToken = config.apiToken;
         Objects.requireNonNull(apiToken, "AudiobookShelfConfig#apiToken");
-        final OkHttpClient client = new OkHttpClient.Builder()
-            .addNetworkInterceptor(chain -> chain.proceed(chain.request().newBuilder()
-                .addHeader("Authorization", "Bearer " + apiToken)
-                .build()))
-            .connectTimeout(Duration.ofSeconds(10))
-            .writeTimeout(Duration.ofSeconds(10))
-            .readTimeout(Duration.ofMinutes(2))
-            .callTimeout(Duration.ofMinutes(2))
-            .build();
-        return new Retrofit.Builder()
-            .baseUrl(config.getUrl())
-            .client(client)
-            .addConverterFactory(JacksonConverterFactory.create())
-            .build()
-            .create(AudiobookShelfService.class);
+        return ServiceRegistry.service(AudiobookShelfService.class, config, () -> {
+            final OkHttpClient client = ServiceRegistry.client(builder -> builder
+                .addNetworkInterceptor(chain -> chain.proceed(chain.request().newBuilder()
+                    .addHeader("Authorization", "Bearer " + apiToken)
+                    .build()))
+                .connectTimeout(Duration.ofSeconds(10))
+                .writeTimeout(Duration.ofSeconds(10))
+                .readTimeout(Duration.ofMinutes(2))
+                .callTimeout(Duration.ofMinutes(2)));
+            return ServiceRegistry
+                .retrofit(config.getUrl(), JacksonConverterFactory.create(), client)
+                .create(AudiobookShelfService.class);
+        });
     }
 
     @POST("/api/authors/{authorId}")
@@ -15,6 +15,9 @@ import java.nio.file.Path;
 @Getter
 public class BookWyrmConfig {
     public static final Path CONFIG_PATH_DEFAULT = Path.of(".credentials", "bookwyrm.json");
+    public static final int DEFAULT_FETCH_SIZE = 500;
+    public static final int DEFAULT_POOL_SIZE = 4;
+    public static final int DEFAULT_WRITE_BATCH_SIZE = 250;
     @Getter(lazy = true)
     private static final BookWyrmConfig instance = new BookWyrmConfig();
 
@@ -31,15 +34,42 @@ public class BookWyrmConfig {
         this(CONFIG_PATH_DEFAULT);
     }
 
+    /**
+     * Rows per round trip when streaming through a cursor, from {@code fetchSize} if set.
+     */
+    public int getCursorFetchSize() {
+        final Integer fetchSize = getFetchSize();
+        return fetchSize == null || fetchSize < 1 ? DEFAULT_FETCH_SIZE : fetchSize;
+    }
+
+    /**
+     * The most database connections a store will open at once, from {@code poolSize} if set.
+     */
+    public int getConnectionPoolSize() {
+        final Integer poolSize = getPoolSize();
+        return poolSize == null || poolSize < 1 ? DEFAULT_POOL_SIZE : poolSize;
+    }
+
+    /**
+     * Rows per JDBC batch when writing, from {@code writeBatchSize} if set.
+     */
+    public int getUpdateBatchSize() {
+        final Integer writeBatchSize = getWriteBatchSize();
+        return writeBatchSize == null || writeBatchSize < 1 ? DEFAULT_WRITE_BATCH_SIZE : writeBatchSize;
+    }
+
     @Value
     private static class Data {
         String apiBase;
         String apiKey;
         Shelf dnfShelf;
+        Integer fetchSize;
         String jdbcUrl;
         Shelf otherShelf;
+        Integer poolSize;
         Shelf readShelf;
         Shelf readingShelf;
         int userId;
+        Integer writeBatchSize;
     }
 }
@@ -26,6 +26,7 @@ import org.rickosborne.romance.client.html.AudiobooksDotComHtml;
 import org.rickosborne.romance.client.html.StoryGraphHtml;
 import org.rickosborne.romance.db.DbModel;
 import org.rickosborne.romance.db.json.JsonStore;
+import org.rickosborne.romance.db.json.JsonStoreBackend;
 import org.rickosborne.romance.db.json.JsonStoreFactory;
 import org.rickosborne.romance.db.model.ModelSchema;
 import org.rickosborne.romance.db.sheet.SheetStore;
@@ -79,6 +80,19 @@ public abstract class ASheetCommand implements Callable<Integer> {
     @Getter(value = AccessLevel.PROTECTED)
     @CommandLine.Option(names = {"--dry-run"}, description = "Do not download anything", required = false)
     private boolean dryRun = false;
+    @Getter(value = AccessLevel.PROTECTED)
+    @CommandLine.Option(names = {"--indexed"}, description = "Load the JSON DB into memory once and index it")
+    private boolean indexed = false;
+    @CommandLine.Option(names = {"--json-backend"}, description = "How the JSON DB is stored: ${COMPLETION-CANDIDATES}", defaultValue = "Files")
+    private JsonStoreBackend jsonBackend;
+    @CommandLine.Option(names = {"--no-snapshot"}, description = "Always parse every JSON DB file, ignoring the snapshot")
+    private boolean noSnapshot = false;
+    @CommandLine.Option(names = {"--snapshot-path"}, description = "Where to keep binary snapshots of the JSON DB", defaultValue = ".cache/json-snapshot")
+    private Path snapshotPath;
+    @CommandLine.Option(names = {"--write-behind"}, description = "Batch JSON DB saves and write them at the end")
+    private boolean writeBehind = false;
+    @CommandLine.Option(names = {"--load-threads"}, description = "How many JSON DB files to parse at once (default: one per core)")
+    private Integer loadThreads;
     @Getter(value = AccessLevel.PROTECTED, lazy = true)
     private final JsonCookieStore jsonCookieStore = Once.supply(() -> {
         final Path cookieStorePath = getCookieStorePath();
@@ -122,11 +136,18 @@ public abstract class ASheetCommand implements Callable<Integer> {
     private boolean write = false;
 
     private BookBot buildBookBot() {
-        return new BookBot(getTabsAuth(), getCachePath(), getCookieStorePath(), getDbPath(), getUserId(), getShelfAuthOptions());
+        final BookBot bot = new BookBot(getTabsAuth(), getCachePath(), getCookieStorePath(), getDbPath(), getUserId(), isIndexed(), getShelfAuthOptions());
+        bot.getJsonStoreFactory().setBackend(jsonBackend);
+        bot.getJsonStoreFactory().setSnapshotPath(noSnapshot ? null : snapshotPath);
+        bot.getJsonStoreFactory().setWriteBehind(writeBehind);
+        if (loadThreads != null) {
+            bot.getJsonStoreFactory().setLoadParallelism(loadThreads);
+        }
+        return bot;
     }
 
     private JsonStoreFactory buildJsonStoreFactory() {
-        return new JsonStoreFactory(getDbPath(), getNamingConvention());
+        return getBookBot().getJsonStoreFactory();
     }
 
     private SheetStoreFactory buildSheetStoreFactory() {
@@ -147,7 +168,15 @@ public abstract class ASheetCommand implements Callable<Integer> {
         if (userId == null || userId.isBlank()) {
             throw new IllegalArgumentException("UserID is required");
         }
-        final Integer result = doWithSheets();
+        final Integer result;
+        try {
+            result = doWithSheets();
+        } finally {
+            getBookBot().close();
+            if (writeBehind) {
+                getJsonStoreFactory().flush();
+            }
+        }
         if (result == null || result == 0) {
             writeChangesIfRequested();
         }
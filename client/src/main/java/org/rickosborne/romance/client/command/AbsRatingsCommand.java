@@ -3,6 +3,8 @@ package org.rickosborne.romance.client.command;
 import lombok.extern.slf4j.Slf4j;
 import org.rickosborne.romance.client.AudiobookStoreService;
 import org.rickosborne.romance.client.audiobookstore.AbsCredentials;
+import org.rickosborne.romance.db.AttributeQuery;
+import org.rickosborne.romance.db.model.BookAttributes;
 import org.rickosborne.romance.db.model.BookModel;
 import org.rickosborne.romance.db.sheet.SheetStore;
 import org.rickosborne.romance.util.BookBot;
@@ -11,6 +13,7 @@ import picocli.CommandLine;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -34,13 +37,16 @@ public class AbsRatingsCommand extends ASheetCommand {
         final String penName = Optional.ofNullable(absCredentials.getPenName()).orElse("");
         final String location = Optional.ofNullable(absCredentials.getLocation()).orElse("");
         final List<BookModel> allTabsBooks = bookBot.getTabsAudiobooks();
+        final AttributeQuery<BookModel> unrated = AttributeQuery.<BookModel>all()
+            .eq(BookAttributes.audiobookStoreRatings, 0)
+            .notNull(BookAttributes.dateRead);
         final List<BookModel> unratedTabsBooks = allTabsBooks.stream()
-            .filter(b -> b.getAudiobookStoreRatings() == 0 && b.getDateRead() != null && !isIgnored(b))
+            .filter(unrated.and(b -> !isIgnored(b)))
             .collect(Collectors.toList());
         log.info("Found {} unrated TABS books.", unratedTabsBooks.size());
         final SheetStore<BookModel> bookSheet = bookBot.getSheetStoreFactory().buildSheetStore(BookModel.class);
-        final List<BookModel> ratedSheetBooks = bookSheet.stream()
-            .filter(b -> b.getRatings().get(BookRating.Overall) != null)
+        final List<BookModel> ratedSheetBooks = bookSheet.stream(AttributeQuery.<BookModel>all()
+                .matches(BookAttributes.ratings, (Map<BookRating, Double> r) -> r != null && r.get(BookRating.Overall) != null))
             .collect(Collectors.toList());
         log.info("Found {} rated books in the spreadsheet.", ratedSheetBooks.size());
         for (final BookModel unratedBook : unratedTabsBooks) {
@@ -72,7 +72,7 @@ public class BellaAudiobooksCommand extends ASheetCommand {
                 } else {
                     rowToModify = sheetStore.getRowNum(existing);
                     beforeBook = existing;
-                    afterBook = bookSchema.mergeModels(bookSchema.mergeModels(jsonStore.findLikeFromCache(existing), existing), book);
+                    afterBook = bookSchema.mergeModels(jsonStore.findLikeFromCache(existing), existing, book);
                 }
                 final BookModel withChars = bookBot.extendWithTextInference(afterBook);
                 final Map<String, String> bookChanges = bookData.getModelSheetAdapter().findChangesToSheet(beforeBook, withChars);
@@ -12,8 +12,10 @@ import org.rickosborne.romance.db.json.JsonStore;
 import org.rickosborne.romance.db.model.AuthorModel;
 import org.rickosborne.romance.db.model.BookModel;
 import org.rickosborne.romance.db.model.BookSchema;
+import org.rickosborne.romance.db.postgresql.BookWyrmBookWriter;
 import org.rickosborne.romance.db.postgresql.BookWyrmPGAuthorStore;
 import org.rickosborne.romance.db.postgresql.BookWyrmPGBookStore;
+import org.rickosborne.romance.db.postgresql.PGConnectionPool;
 import org.rickosborne.romance.db.sheet.SheetStore;
 import org.rickosborne.romance.util.BookRating;
 import org.rickosborne.romance.util.Pair;
@@ -24,6 +26,7 @@ import retrofit2.Response;
 import java.io.IOException;
 import java.net.URL;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -141,9 +144,13 @@ public class BookWyrmCoversCommand extends ASheetCommand {
         final SheetStore<BookModel> sheetBookStore = getSheetStoreFactory().buildSheetStore(BookModel.class);
         final JsonStore<BookModel> jsonStore = getJsonStoreFactory().buildJsonStore(BookModel.class);
         try (
-            final BookWyrmPGBookStore pgBookStore = new BookWyrmPGBookStore(bookWyrmConfig);
-            final BookWyrmPGAuthorStore pgAuthorStore = new BookWyrmPGAuthorStore(bookWyrmConfig)
+            final PGConnectionPool pool = PGConnectionPool.forConfig(bookWyrmConfig);
+            final BookWyrmPGBookStore pgBookStore = new BookWyrmPGBookStore(bookWyrmConfig, pool);
+            final BookWyrmPGAuthorStore pgAuthorStore = new BookWyrmPGAuthorStore(bookWyrmConfig, pool)
         ) {
+            final BookWyrmBookWriter writer = pgBookStore.getWriter();
+            writer.setDryRun(isDryRun());
+            final List<BookModel> unwritten = new ArrayList<>();
             for (final BookModel sheetBook : sheetBookStore) {
                 if (!fingerprintStore.hasChanged(sheetBook)) {
                     continue;
@@ -181,10 +188,16 @@ public class BookWyrmCoversCommand extends ASheetCommand {
                 if (jsonBook != null) {
                     fixDescription(pgBook, jsonBook, bookIds, pgBookStore);
                 }
-                fingerprintStore.updateFingerprint(sheetBook);
+                unwritten.add(sheetBook);
+                if (unwritten.size() >= writer.getBatchSize()) {
+                    writeAndFingerprint(writer, unwritten);
+                }
             }
+            writeAndFingerprint(writer, unwritten);
         } catch (IOException e) {
             throw new RuntimeException(e);
+        } finally {
+            fingerprintStore.close();
         }
         return 0;
     }
@@ -311,6 +324,20 @@ public class BookWyrmCoversCommand extends ASheetCommand {
         }
     }
 
+    /**
+     * Flush the queued updates, and only then remember the books as done, unless this is a dry run.
+     */
+    private void writeAndFingerprint(
+        final BookWyrmBookWriter writer,
+        final List<BookModel> books
+    ) {
+        writer.flush();
+        if (!isDryRun()) {
+            books.forEach(fingerprintStore::updateFingerprint);
+        }
+        books.clear();
+    }
+
     private Shelf shelfForBook(final BookModel book) {
         if (Boolean.TRUE.equals(book.dnf)) {
             return bookWyrmConfig.getDnfShelf();
@@ -9,10 +9,14 @@ import org.rickosborne.romance.db.json.JsonStore;
 import org.rickosborne.romance.db.model.BookModel;
 import org.rickosborne.romance.db.model.BookSchema;
 import org.rickosborne.romance.db.postgresql.BookWyrmPGBookStore;
+import org.rickosborne.romance.db.postgresql.IdCache;
 import org.rickosborne.romance.db.sheet.SheetStore;
 import org.rickosborne.romance.util.Pair;
 import picocli.CommandLine;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.rickosborne.romance.util.BookMerger.bookLikeFilter;
 
 @Slf4j
@@ -21,6 +25,8 @@ import static org.rickosborne.romance.util.BookMerger.bookLikeFilter;
     description = "Synchronize with BookWyrm PG DB"
 )
 public class BookWyrmPGSyncCommand extends ASheetCommand {
+    public static final int SYNC_BATCH_SIZE = 50;
+
     private final BookWyrmConfig bookWyrmConfig = BookWyrmConfig.getInstance();
 
     @Override
@@ -30,10 +36,42 @@ public class BookWyrmPGSyncCommand extends ASheetCommand {
         final BookSchema bookSchema = new BookSchema();
         final JsonStore<BookModel> jsonStore = getJsonStoreFactory().buildJsonStore(BookModel.class);
         try (final BookWyrmPGBookStore db = new BookWyrmPGBookStore(bookWyrmConfig)) {
-            final BookWyrmPGBookStore.IdCache idCache = db.getIdCache();
+            db.getWriter().setDryRun(isDryRun());
+            final IdCache idCache = db.getIdCache();
             log.info("Titles in ID cache: {}", idCache.getCount());
+            final List<BookModel> batch = new ArrayList<>(SYNC_BATCH_SIZE);
             for (final BookModel sheetBook : sheetBookStore) {
-                final Pair<BookModel, Integer> pair = db.findLikeForUser(sheetBook, bookWyrmConfig.getUserId());
+                batch.add(sheetBook);
+                if (batch.size() >= SYNC_BATCH_SIZE) {
+                    if (syncBatch(batch, db, jsonStore, bookSchema, jsonWriter)) {
+                        return 0;
+                    }
+                    batch.clear();
+                }
+            }
+            syncBatch(batch, db, jsonStore, bookSchema, jsonWriter);
+            return 0;
+        }
+    }
+
+    /**
+     * @return true once a book has been saved
+     */
+    private boolean syncBatch(
+        final List<BookModel> sheetBooks,
+        final BookWyrmPGBookStore db,
+        final JsonStore<BookModel> jsonStore,
+        final BookSchema bookSchema,
+        final ObjectWriter jsonWriter
+    ) {
+        if (sheetBooks.isEmpty()) {
+            return false;
+        }
+        final List<Pair<BookModel, Integer>> pairs = db.findLikeManyForUser(sheetBooks, bookWyrmConfig.getUserId());
+        try {
+            for (int i = 0; i < sheetBooks.size(); i++) {
+                final BookModel sheetBook = sheetBooks.get(i);
+                final Pair<BookModel, Integer> pair = pairs.get(i);
                 final BookModel dbBook = pair == null ? null : pair.getLeft();
                 if (dbBook == null) {
                     log.debug("Could not find: {}", sheetBook);
@@ -41,15 +79,14 @@ public class BookWyrmPGSyncCommand extends ASheetCommand {
                 }
                 log.debug(jsonWriter.writeValueAsString(dbBook));
                 final BookModel jsonBook = jsonStore.findLikeOrMatch(sheetBook, bookLikeFilter(sheetBook));
-                BookModel merged = bookSchema.mergeModels(dbBook, jsonBook);
-                merged = bookSchema.mergeModels(merged, sheetBook);
+                final BookModel merged = bookSchema.mergeModels(dbBook, jsonBook, sheetBook);
                 log.debug(jsonWriter.writeValueAsString(merged));
                 db.saveIfChanged(merged);
-                break;
+                return true;
             }
-            return 0;
         } catch (JsonProcessingException e) {
             throw new RuntimeException(e);
         }
+        return false;
     }
 }
@@ -1,6 +1,7 @@
 package org.rickosborne.romance.client.command;
 
 import lombok.Getter;
+import org.rickosborne.romance.db.json.JsonStoreFactory;
 import org.rickosborne.romance.db.model.BookModel;
 import org.rickosborne.romance.db.model.BookSchema;
 import org.rickosborne.romance.util.BookBot;
@@ -24,16 +25,31 @@ public class DataFromAudiobookStoreCommand implements Callable<Integer> {
     @CommandLine.Option(names = {"--cache", "-c"}, description = "Path to cache dir", defaultValue = ".cache/html")
     private Path cachePath;
 
+    @SuppressWarnings("unused")
+    @Getter
+    @CommandLine.Option(names = {"--indexed"}, description = "Load the JSON DB into memory once and index it")
+    private boolean indexed = false;
+
     @SuppressWarnings("unused")
     @Getter
     @CommandLine.Option(names = {"--path", "-p"}, description = "Path to DB dir", defaultValue = "book-data")
     private Path dbPath;
 
+    @SuppressWarnings("unused")
+    @Getter
+    @CommandLine.Option(names = {"--write-behind"}, description = "Batch JSON DB saves and write them at the end")
+    private boolean writeBehind = false;
+
     @Override
     public Integer call() throws Exception {
-        final BookBot bookBot = new BookBot(auth, cachePath, null, dbPath, null, null);
-        for (final BookModel fetched : bookBot.fetchAudiobooks()) {
-            bookBot.extendAll(fetched);
+        final BookBot bookBot = new BookBot(auth, cachePath, null, dbPath, null, indexed, null);
+        final JsonStoreFactory storeFactory = bookBot.getJsonStoreFactory();
+        storeFactory.setWriteBehind(writeBehind);
+        try {
+            bookBot.extendAll(bookBot.fetchAudiobooks(), null);
+        } finally {
+            bookBot.close();
+            storeFactory.close();
         }
         return 0;
     }
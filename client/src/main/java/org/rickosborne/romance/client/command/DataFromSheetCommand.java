@@ -3,9 +3,13 @@ package org.rickosborne.romance.client.command;
 import com.google.api.services.sheets.v4.model.Request;
 import com.google.api.services.sheets.v4.model.Sheet;
 import com.google.api.services.sheets.v4.model.Spreadsheet;
+import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import org.rickosborne.romance.BooksSheets;
 import org.rickosborne.romance.db.DbModel;
+import org.rickosborne.romance.db.Diff;
+import org.rickosborne.romance.db.DiffPlan;
+import org.rickosborne.romance.db.Reconciler;
 import org.rickosborne.romance.db.json.JsonStore;
 import org.rickosborne.romance.db.model.BookAttributes;
 import org.rickosborne.romance.db.model.ModelSchema;
@@ -13,14 +17,17 @@ import org.rickosborne.romance.db.model.SchemaAttribute;
 import org.rickosborne.romance.db.sheet.SheetStore;
 import org.rickosborne.romance.sheet.ModelSheetAdapter;
 import org.rickosborne.romance.util.SheetStuff;
+import org.rickosborne.romance.util.TriConsumer;
 import picocli.CommandLine;
 
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 @Slf4j
 @CommandLine.Command(
@@ -43,6 +50,42 @@ public class DataFromSheetCommand extends ASheetCommand {
         return null;
     }
 
+    /**
+     * Merge each sheet record over its stored JSON model and save any changes, in sheet order.
+     * A record repeating an id merges over what the rows before it saved, so the last row wins,
+     * as it did when each row was looked up on its own.  The callback sees each record, what was
+     * stored for it, and the merge, before the save.
+     */
+    static <M> void mergeIntoJson(
+        @NonNull final List<M> records,
+        @NonNull final JsonStore<M> jsonStore,
+        @NonNull final TriConsumer<M, M, M> onMerged
+    ) {
+        final ModelSchema<M> modelSchema = jsonStore.getModelSchema();
+        final DiffPlan<M> diffPlan = DiffPlan.forModelType(jsonStore.getModelType());
+        // The join sorts stably, so rows sharing an id stay in sheet order.
+        try (final Stream<Reconciler.Reconciled<M>> joined = Reconciler.byIdOf(jsonStore).join(records.stream(), null, jsonStore.stream())) {
+            joined.forEach(reconciled -> {
+                final M record = reconciled.getLeft();
+                if (record == null) {
+                    return;
+                }
+                // Only the first row for an id joins, so look the others up after it saved.
+                final M existing = reconciled.getRight() != null || reconciled.getId() == null
+                    ? reconciled.getRight()
+                    : jsonStore.findLikeFromCache(record);
+                final M updated = modelSchema.mergeModels(existing, record);
+                onMerged.accept(record, existing, updated);
+                final Diff<M> diff = diffPlan.diff(existing, updated);
+                if (diff.hasChanged()) {
+                    System.out.println("~~~ " + jsonStore.getDbModel().getTypeName() + "/" + jsonStore.idFromModel(updated));
+                    System.out.println(diff.asDiffLines());
+                    jsonStore.save(updated);
+                }
+            });
+        }
+    }
+
     private <M> void pullTab(
         final DbModel dbModel,
         final Spreadsheet spreadsheet
@@ -56,26 +99,26 @@ public class DataFromSheetCommand extends ASheetCommand {
         final JsonStore<M> jsonStore = getJsonStoreFactory().buildJsonStore(modelType);
         final SheetStore<M> sheetStore = getSheetStoreFactory().buildSheetStore(modelType);
         final SheetStuff.SheetDescriptor sheetDescriptor = sheetStore.getSheetDescriptor();
-        final ModelSchema<M> modelSchema = jsonStore.getModelSchema();
         final String[] colKeys = sheetDescriptor.getColumnKeys();
         final Map<String, Integer> colNums = IntStream.range(0, colKeys.length).boxed().collect(Collectors.toMap(i -> colKeys[i], i -> i));
         System.out.println(tabTitle + ": " + String.join(", ", colKeys));
         final List<Request> changeRequests = getChangeRequests();
-        for (final SheetStuff.Indexed<M> indexed : sheetStore.getRecords()) {
-            final int rowNum = indexed.getRowNum();
-            final M record = indexed.getModel();
-            final M existing = jsonStore.findLikeFromCache(record);
-            final M updated = modelSchema.mergeModels(existing, record);
+        final List<SheetStuff.Indexed<M>> records = sheetStore.getRecords();
+        final Map<M, Integer> rowNums = new IdentityHashMap<>();
+        for (final SheetStuff.Indexed<M> indexed : records) {
+            rowNums.put(indexed.getModel(), indexed.getRowNum());
+        }
+        final List<M> models = records.stream().map(SheetStuff.Indexed::getModel).collect(Collectors.toList());
+        mergeIntoJson(models, jsonStore, (record, existing, updated) -> {
             if (existing != null) {
                 final Map<String, String> changes = sheetAdapter.findChangesToSheet(record, updated, skipPredicate);
                 if (!changes.isEmpty()) {
                     System.out.println("~~~ " + jsonStore.idFromModel(existing));
                     // System.out.println(changes);
-                    changeRequests.addAll(changeRequestsFromModelChanges(sheet, colNums, rowNum, changes));
+                    changeRequests.addAll(changeRequestsFromModelChanges(sheet, colNums, rowNums.get(record), changes));
                 }
             }
-            jsonStore.saveIfChanged(updated);
-        }
+        });
         writeChangesIfRequested();
     }
 }
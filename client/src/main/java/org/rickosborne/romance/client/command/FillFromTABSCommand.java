@@ -3,6 +3,7 @@ package org.rickosborne.romance.client.command;
 import com.google.api.services.sheets.v4.model.Request;
 import lombok.extern.slf4j.Slf4j;
 import org.rickosborne.romance.client.html.AudiobookStoreHtml;
+import org.rickosborne.romance.db.CachingModelStore;
 import org.rickosborne.romance.db.DbModel;
 import org.rickosborne.romance.db.model.AuthorModel;
 import org.rickosborne.romance.db.model.BookModel;
@@ -34,6 +35,10 @@ public class FillFromTABSCommand extends ASheetCommand {
         final AudiobookStoreHtml audiobookStoreHtml = getAudiobookStoreHtml();
         final DataSet<BookModel> bookData = new DataSet<>(DbModel.Book);
         final DataSet<AuthorModel> authorData = new DataSet<>(DbModel.Author);
+        // Most authors have several books, so only read each from disk once.
+        final CachingModelStore<AuthorModel> authorJsonStore = CachingModelStore.<AuthorModel>builder()
+            .delegate(authorData.getJsonStore())
+            .build();
         final BookBot bookBot = getBookBot();
         for (final SheetStuff.Indexed<BookModel> bookRecord : bookData.getSheetStore().getRecords()) {
             final BookModel sheetBook = bookRecord.getModel();
@@ -57,7 +62,7 @@ public class FillFromTABSCommand extends ASheetCommand {
                     final Integer authorRowNum = authorData.getSheetStore().getRowNum(sheetAuthor);
                     if (authorRowNum != null) {
                         final AuthorModel sheetPlusTabsAuthor = authorData.getModelSchema().mergeModels(tabsAuthor, sheetAuthor);
-                        final AuthorModel jsonAuthor = authorData.getJsonStore().findLike(sheetAuthor);
+                        final AuthorModel jsonAuthor = authorJsonStore.findLike(sheetAuthor);
                         final AuthorModel allAuthor = authorData.getModelSchema().mergeModels(jsonAuthor, sheetPlusTabsAuthor);
                         final Map<String, String> authorChanges = authorData.getModelSheetAdapter().findChangesToSheet(sheetAuthor, allAuthor);
                         if (!authorChanges.isEmpty()) {
@@ -69,6 +74,7 @@ public class FillFromTABSCommand extends ASheetCommand {
                 }
             }
         }
+        log.debug("{}", authorJsonStore);
         return null;
     }
 }
@@ -23,6 +23,7 @@ import org.rickosborne.romance.db.model.AuthorModel;
 import org.rickosborne.romance.db.model.BookModel;
 import org.rickosborne.romance.util.BidirectionalMultiMap;
 import org.rickosborne.romance.util.BookBot;
+import org.rickosborne.romance.util.BookMatchIndex;
 import org.rickosborne.romance.util.BookStuff;
 import org.rickosborne.romance.util.DateStuff;
 import org.rickosborne.romance.util.FFMetadata;
@@ -51,11 +52,11 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import static org.rickosborne.romance.util.BookMerger.bookLikeFilter;
 import static org.rickosborne.romance.util.BookStuff.cleanAuthor;
 import static org.rickosborne.romance.util.FFMetadata.chaptersFromFile;
 import static org.rickosborne.romance.util.FileStuff.interpretFileParts;
@@ -78,6 +79,7 @@ public class FixShelfCommand extends ASheetCommand {
     private final ObjectMapper objectMapper = new ObjectMapper();
     @CommandLine.Option(names = "--out-json")
     private String outFileName;
+    private BookMatchIndex storeIndex;
 
     @SneakyThrows
     @Override
@@ -103,15 +105,18 @@ public class FixShelfCommand extends ASheetCommand {
         }).collect(Collectors.toList());
         if (doBooks) {
             log.info("Filling out {} books", tabsBooks.size());
-            int doneCount = 0;
-            for (final BookModel tabsBook : tabsBooks) {
-                bookBot.extendAll(tabsBook);
-                doneCount++;
-                if ((doneCount % 100) == 0) {
-                    log.info("  Books done: {}", doneCount);
+            final AtomicInteger doneCount = new AtomicInteger();
+            bookBot.extendAll(tabsBooks, book -> {
+                final int done = doneCount.incrementAndGet();
+                if ((done % 100) == 0) {
+                    log.info("  Books done: {}", done);
                 }
-            }
+            });
+        }
+        if (doBooks || doAuthors) {
+            storeIndex = BookMatchIndex.of(bookStore.stream());
         }
+        final BookMatchIndex tabsIndex = BookMatchIndex.of(tabsBooks);
         if (doAuthors) {
             final List<AuthorModel> tabsAuthors = tabsBooks.stream()
                 .map(BookModel::getAuthorName)
@@ -123,7 +128,7 @@ public class FixShelfCommand extends ASheetCommand {
             log.info("Filling out {} authors", tabsAuthors.size());
             int doneCount = 0;
             for (final AuthorModel tabsAuthor : tabsAuthors) {
-                authorStore.saveIfChanged(bookBot.extendAll(tabsAuthor, null));
+                authorStore.saveIfChanged(bookBot.extendAll(tabsAuthor, storeIndex.findWithAuthorLike(tabsAuthor.getName())));
                 doneCount++;
                 if ((doneCount % 100) == 0) {
                     log.info("  Authors done: {}", doneCount);
@@ -141,7 +146,7 @@ public class FixShelfCommand extends ASheetCommand {
                 continue;
             }
             if (doBooks) {
-                bookCount = fixBooks(shelf, libraryId, bookCount, bookStore, bookBot, tabsBooks);
+                bookCount = fixBooks(shelf, libraryId, bookCount, bookStore, bookBot, tabsIndex);
             }
             if (doAuthors) {
                 authorCount += fixAuthors(shelf, libraryId, authorStore, bookBot);
@@ -171,7 +176,7 @@ public class FixShelfCommand extends ASheetCommand {
         final AuthorModel authorModel = AuthorModel.builder()
             .name(author.getName())
             .build();
-        final AuthorModel stored = bookBot.extendAll(authorModel, null);
+        final AuthorModel stored = bookBot.extendAll(authorModel, storeIndex.findWithAuthorLike(authorModel.getName()));
         if (stored != null) {
             if (stored.getBioHtml() != null && author.getDescription() == null) {
                 patch.setDescription(stored.getBioHtml());
@@ -234,7 +239,7 @@ public class FixShelfCommand extends ASheetCommand {
     }
 
     @SneakyThrows
-    private BookChanged fixBook(@NonNull final AudiobookShelfBookMinified book, @NonNull final JsonStore<BookModel> store, @NonNull final BookBot bookBot, final AudiobookShelfProgressUpdate progress, @NonNull final List<BookModel> tabsBooks) {
+    private BookChanged fixBook(@NonNull final AudiobookShelfBookMinified book, @NonNull final JsonStore<BookModel> store, @NonNull final BookBot bookBot, final AudiobookShelfProgressUpdate progress, @NonNull final BookMatchIndex tabsIndex) {
         final AudiobookShelfBookMinified fixedBook = new AudiobookShelfBookMinified();
         final AudiobookShelfBookMetadataMinified metadata = book.getMetadata();
         final AudiobookShelfBookMetadataMinified metadataPatch = new AudiobookShelfBookMetadataMinified();
@@ -248,7 +253,7 @@ public class FixShelfCommand extends ASheetCommand {
             titleChanged = false;
         }
         final BookModel model = BookModel.builder().title(fixedTitle).authorName(metadata.getAuthorName()).build();
-        final List<BookModel> tabsMatches = tabsBooks.stream().filter(bookLikeFilter(model)).toList();
+        final List<BookModel> tabsMatches = tabsIndex.findLike(model);
         BookModel tabsBook;
         if (tabsMatches.isEmpty()) {
             // log.info("Not a TABS book: {}", model);
@@ -261,7 +266,7 @@ public class FixShelfCommand extends ASheetCommand {
         }
         BookModel stored = null;
         if (tabsBook != null) {
-            final List<BookModel> inStore = store.stream().filter(bookLikeFilter(tabsBook)).toList();
+            final List<BookModel> inStore = storeIndex.findLike(tabsBook);
             if (inStore.isEmpty()) {
                 URL tabsUrl = tabsBook.getAudiobookStoreUrl();
                 if (tabsUrl == null) {
@@ -271,6 +276,7 @@ public class FixShelfCommand extends ASheetCommand {
                 if (tabsUrl != null) {
                     tabsBook = bookBot.extendWithAudiobookStoreDetails(tabsBook);
                     store.save(tabsBook);
+                    storeIndex.add(tabsBook);
                     stored = tabsBook;
                 } else {
                     log.warn("⚠️ Could not find book in store from TABS: {}", tabsBook);
@@ -282,7 +288,7 @@ public class FixShelfCommand extends ASheetCommand {
             }
         }
         if (stored == null) {
-            final List<BookModel> matches = store.stream().filter(bookLikeFilter(model)).toList();
+            final List<BookModel> matches = storeIndex.findLike(model);
             if (matches.size() > 1) {
                 final Set<String> authorNames = matches.stream().map(BookModel::getAuthorName).collect(Collectors.toSet());
                 if (authorNames.size() == 1) {
@@ -305,10 +311,12 @@ public class FixShelfCommand extends ASheetCommand {
         final AudiobookShelfProgressUpdate patchProgress = new AudiobookShelfProgressUpdate();
         if (stored != null) {
             if (stored != tabsBook) {
+                final BookModel indexed = stored;
                 stored = bookBot.extendWithAudiobookStoreBookInformation(stored);
                 stored = bookBot.extendWithAudiobookStoreDetails(stored);
                 stored = bookBot.extendWithAudiobookStorePurchase(stored);
                 store.saveIfChanged(stored, false);
+                storeIndex.replace(indexed, stored);
             }
             log.info("Match: {}", stored);
             final boolean narratorChanged = fixNarrators(stored, metadata, metadataPatch);
@@ -339,7 +347,7 @@ public class FixShelfCommand extends ASheetCommand {
         return null;
     }
 
-    private int fixBooks(@NonNull final AudiobookShelfService shelf, @NonNull final UUID libraryId, int bookCount, @NonNull final JsonStore<BookModel> bookStore, @NonNull final BookBot bookBot, @NonNull final List<BookModel> tabsBooks) throws IOException {
+    private int fixBooks(@NonNull final AudiobookShelfService shelf, @NonNull final UUID libraryId, int bookCount, @NonNull final JsonStore<BookModel> bookStore, @NonNull final BookBot bookBot, @NonNull final BookMatchIndex tabsIndex) throws IOException {
         final List<AudiobookShelfLibraryItem> items = Objects.requireNonNull(shelf.getLibraryItems(libraryId, 9999, 0, "media.metadata.title", 0, null, null, 1, null).execute().body()).getResults();
         log.info("Item count: {}", items.size());
         for (final AudiobookShelfLibraryItem item : items) {
@@ -351,7 +359,7 @@ public class FixShelfCommand extends ASheetCommand {
             bookCount++;
             final AudiobookShelfBookMinified book = expanded.getMedia();
             final AudiobookShelfProgressUpdate progress = shelf.getItemProgress(libraryItemId).execute().body();
-            final BookChanged bookChanged = fixBook(book, bookStore, bookBot, progress, tabsBooks);
+            final BookChanged bookChanged = fixBook(book, bookStore, bookBot, progress, tabsIndex);
             if (bookChanged != null && !isDryRun()) {
                 boolean logChanges = false;
                 if (bookChanged.book != null) {
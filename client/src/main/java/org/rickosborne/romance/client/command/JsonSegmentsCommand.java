@@ -0,0 +1,52 @@
+package org.rickosborne.romance.client.command;
+
+import lombok.extern.slf4j.Slf4j;
+import org.rickosborne.romance.NamingConvention;
+import org.rickosborne.romance.db.json.JsonStore;
+import org.rickosborne.romance.db.json.JsonStoreBackend;
+import org.rickosborne.romance.db.json.JsonStoreFactory;
+import org.rickosborne.romance.db.json.SegmentJsonStore;
+import picocli.CommandLine;
+
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+
+@Slf4j
+@CommandLine.Command(
+    name = "json-segments",
+    description = "Build, compact, or export the append-only segment files for the JSON DB"
+)
+public class JsonSegmentsCommand implements Callable<Integer> {
+    @SuppressWarnings("unused")
+    @CommandLine.Option(names = {"--compact"}, description = "Drop superseded records")
+    private boolean compact = false;
+
+    @SuppressWarnings("unused")
+    @CommandLine.Option(names = {"--path", "-p"}, description = "Path to DB dir", defaultValue = "book-data")
+    private Path dbPath;
+
+    @SuppressWarnings("unused")
+    @CommandLine.Option(names = {"--export"}, description = "Write one JSON file per model, for diffing")
+    private boolean export = false;
+
+    @Override
+    public Integer call() {
+        final JsonStoreFactory jsonStoreFactory = new JsonStoreFactory(dbPath, new NamingConvention());
+        jsonStoreFactory.setBackend(JsonStoreBackend.Segment);
+        for (final JsonStoreFactory.StoreModel storeModel : JsonStoreFactory.StoreModel.values()) {
+            final JsonStore<Object> store = jsonStoreFactory.buildJsonStore(storeModel.getModelType());
+            if (!(store instanceof SegmentJsonStore<Object> segmentStore)) {
+                continue;
+            }
+            log.info("{} has {} records", segmentStore.getSegmentPath(), segmentStore.size());
+            if (compact) {
+                segmentStore.compact();
+            }
+            if (export) {
+                final int count = segmentStore.exportToFiles();
+                log.info("Exported {} {} files from {}", count, storeModel.name(), segmentStore.getSegmentPath());
+            }
+        }
+        return 0;
+    }
+}
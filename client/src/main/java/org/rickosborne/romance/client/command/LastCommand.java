@@ -7,6 +7,8 @@ import org.rickosborne.romance.client.AudiobookStoreService;
 import org.rickosborne.romance.client.CacheClient;
 import org.rickosborne.romance.client.response.BookInformation;
 import org.rickosborne.romance.client.response.UserInformation2;
+import org.rickosborne.romance.db.AttributeQuery;
+import org.rickosborne.romance.db.model.BookAttributes;
 import org.rickosborne.romance.db.model.BookModel;
 import org.rickosborne.romance.db.sheet.SheetStore;
 import org.rickosborne.romance.util.BookBot;
@@ -72,6 +74,7 @@ public class LastCommand extends ASheetCommand {
             .filter(b -> LocalDate.ofInstant(b.getPurchaseInstant(), ZoneOffset.UTC).isAfter(ROMANCE_PURCHASE_START))
             .sorted(Comparator.comparing(BookInformation::getPurchaseInstant).reversed())
             .map(BookMerger::modelFromBookInformation)
+            .filter(effectiveSpec.pushdown())
             .map(bookBot::extendWithJsonStored)
             .map(bookBot::extendWithAudiobookStoreDetails)
             .filter(IgnoredBooks::isNotIgnored)
@@ -139,6 +142,13 @@ public class LastCommand extends ASheetCommand {
         }
 
         public abstract List<BookModel> filterBooks(final List<BookModel> books);
+
+        /**
+         * What can be ruled out before any book is looked up elsewhere.
+         */
+        public AttributeQuery<BookModel> pushdown() {
+            return AttributeQuery.all();
+        }
     }
 
     @AllArgsConstructor
@@ -163,5 +173,10 @@ public class LastCommand extends ASheetCommand {
                 .filter(book -> since.isBefore(book.getDatePurchase()))
                 .collect(Collectors.toList());
         }
+
+        @Override
+        public AttributeQuery<BookModel> pushdown() {
+            return AttributeQuery.<BookModel>all().range(BookAttributes.datePurchase, since.plusDays(1), null);
+        }
     }
 }
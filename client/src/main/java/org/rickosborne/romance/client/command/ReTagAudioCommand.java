@@ -1,8 +1,7 @@
 package org.rickosborne.romance.client.command;
 
 import lombok.extern.slf4j.Slf4j;
-import org.rickosborne.romance.db.Diff;
-import org.rickosborne.romance.db.SchemaDiff;
+import org.rickosborne.romance.db.DiffPlan;
 import org.rickosborne.romance.db.json.JsonStore;
 import org.rickosborne.romance.db.model.BookModel;
 import org.rickosborne.romance.db.model.BookSchema;
@@ -50,7 +49,7 @@ public class ReTagAudioCommand extends ASheetCommand {
         final BookBot bot = getBookBot();
         final JsonStore<BookModel> bookStore = bot.getBookStore();
         final BookSchema bookSchema = bot.getBookSchema();
-        final SchemaDiff schemaDiff = new SchemaDiff();
+        final DiffPlan<BookModel> diffPlan = DiffPlan.forModelType(BookModel.class);
         for (final BookModel fileBook : bookFiles.getLefts()) {
             final List<File> filesAndDirs = bookFiles.rightsFor(fileBook);
             if (filesAndDirs == null) {
@@ -101,9 +100,8 @@ public class ReTagAudioCommand extends ASheetCommand {
                         }
                     }
                 }
-                final Diff<BookModel> diff = schemaDiff.diffModels(storeBook, mergedBook);
-                if (diff.hasChanged()) {
-                    log.info("Diff: {}\n{}", mergedBook, diff.asDiffLines());
+                if (diffPlan.hasChanged(storeBook, mergedBook)) {
+                    log.info("Diff: {}\n{}", mergedBook, diffPlan.diff(storeBook, mergedBook).asDiffLines());
                     updateTags(file, tempPath.toAbsolutePath(), mergedBook, files.size());
                 }
             }
@@ -52,8 +52,7 @@ public class WishlistCommand extends ASheetCommand {
             return 0;
         }
         final BookBot bookBot = getBookBot();
-        final List<BookModel> extendedBooks = wishlist.stream()
-            .map(bookBot::extendAll)
+        final List<BookModel> extendedBooks = bookBot.extendAll(wishlist, null).stream()
             .map(bookBot::extendWithTextInference)
             .collect(Collectors.toList());
         for (final BookModel book : extendedBooks) {
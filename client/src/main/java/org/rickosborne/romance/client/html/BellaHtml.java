@@ -26,7 +26,6 @@ import static org.rickosborne.romance.util.DateStuff.fromMonthDayYear;
 public class BellaHtml {
     private static final String AUDIOBOOKS_CATEGORY_URL_ROOT = "https://www.bellabooks.com/category/audio/";
     private static final Path CACHE_PATH = Path.of("./.cache/bella");
-    public static final int DELAY_MS = 5000;
     public static final Pattern PAGE_PATTERN = Pattern.compile("/page/(?<num>[0-9]+)/");
 
     public static URL audioBookPageUrl(final int pageNum) {
@@ -36,7 +35,7 @@ public class BellaHtml {
     public LinksPage getAudiobookLinksPage(final int pageNum) {
         final URL url = audioBookPageUrl(pageNum);
         final List<URL> links = new LinkedList<>();
-        final HtmlScraper scraper = HtmlScraper.forUrlWithDelay(url, CACHE_PATH, DELAY_MS, null, null);
+        final HtmlScraper scraper = HtmlScraper.forUrl(url, CACHE_PATH);
         scraper.selectMany(".products .product a", link -> {
             final String href = link.getAttr("href");
             if (href != null && href.startsWith("https://www.bellabooks.com/product/")) {
@@ -61,7 +60,7 @@ public class BellaHtml {
     }
 
     public BookModel getBookModel(final URL url) {
-        final HtmlScraper scraper = HtmlScraper.forUrlWithDelay(url, CACHE_PATH, DELAY_MS, null, null);
+        final HtmlScraper scraper = HtmlScraper.forUrl(url, CACHE_PATH);
         final BookModel book = BookModel.build();
         for (final BookPage bookEl : BookPage.values()) {
             bookEl.findAndSet(book, scraper);
@@ -26,12 +26,11 @@ import static org.rickosborne.romance.util.ModelSetter.setIfEmpty;
 @Slf4j
 @RequiredArgsConstructor
 public class GoodreadsHtml {
-    public static final int DELAY_MS = 5000;
     public static final Pattern SERIES_NAME_AND_PART = Pattern.compile("\\((?<name>.+?)\\s+#(?<part>.+)\\)");
     private final Path cachePath;
 
     public AuthorModel getAuthorModel(@NonNull final URL url) {
-        final HtmlScraper scraper = HtmlScraper.forUrlWithDelay(url, cachePath, DELAY_MS, null, null);
+        final HtmlScraper scraper = HtmlScraper.forUrl(url, cachePath);
         final AuthorModel author = AuthorModel.build();
         for (final AuthorPage value : AuthorPage.values()) {
             value.findAndSet(author, scraper);
@@ -41,7 +40,7 @@ public class GoodreadsHtml {
         if (photoHref != null) {
             try {
                 final URL photoPageUrl = new URIBuilder(url.toString()).setPath(photoHref).build().toURL();
-                final HtmlScraper photoScraper = HtmlScraper.forUrlWithDelay(photoPageUrl, cachePath, DELAY_MS, null, null);
+                final HtmlScraper photoScraper = HtmlScraper.forUrl(photoPageUrl, cachePath);
                 final String largestPhotoUrl = photoScraper.selectFirst(".leftContainer a[href*=https://images.gr-assets.com]")
                     .getAttr("href");
                 if (largestPhotoUrl != null) {
@@ -55,7 +54,7 @@ public class GoodreadsHtml {
     }
 
     public BookModel getBookModel(@NonNull final URL url) {
-        final HtmlScraper scraper = HtmlScraper.forUrlWithDelay(url, cachePath, DELAY_MS, null, null);
+        final HtmlScraper scraper = HtmlScraper.forUrl(url, cachePath);
         final BookModel book = BookModel.build();
         for (final BookPage value : BookPage.values()) {
             value.findAndSet(book, scraper);
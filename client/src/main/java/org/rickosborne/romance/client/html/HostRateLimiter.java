@@ -0,0 +1,203 @@
+package org.rickosborne.romance.client.html;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Spaces out requests per host with a token bucket for each: a host allows {@code burst}
+ * requests at once, then one per {@code interval}.  Each host has its own bucket and lock,
+ * so waiting on a slow host never holds up requests to another.  Callers reserve their turn
+ * under the bucket's lock and wait outside it, so turns are handed out in order without races.
+ * When a host answers 429 or 503, it is paused for its {@code Retry-After}, and its interval
+ * doubles, easing back toward the configured rate as requests succeed.  A host with no rate
+ * of its own is only paused, so it returns to full speed once it recovers.
+ */
+@Slf4j
+public class HostRateLimiter {
+    public static final int MAX_SLOWDOWN = 8;
+    /**
+     * How long a host is paused when it gives no {@code Retry-After}, unless its interval is longer.
+     */
+    public static final Duration DEFAULT_PAUSE = Duration.ofSeconds(1);
+    private static final HostRateLimiter SHARED = new HostRateLimiter(System::nanoTime)
+        .configure("audiobookstore.com", Duration.ofSeconds(5), 1)
+        .configure("bellabooks.com", Duration.ofSeconds(5), 1)
+        .configure("goodreads.com", Duration.ofSeconds(5), 2)
+        .configure("thestorygraph.com", Duration.ofSeconds(4), 2);
+
+    public static HostRateLimiter getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Seconds, or an HTTP date, or null if neither.
+     */
+    public static Duration parseRetryAfter(final String retryAfter, final ZonedDateTime now) {
+        if (retryAfter == null || retryAfter.isBlank()) {
+            return null;
+        }
+        final String trimmed = retryAfter.trim();
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(trimmed)));
+        } catch (NumberFormatException e) {
+            try {
+                final Duration until = Duration.between(now, ZonedDateTime.parse(trimmed, DateTimeFormatter.RFC_1123_DATE_TIME));
+                return until.isNegative() ? Duration.ZERO : until;
+            } catch (DateTimeParseException e2) {
+                log.debug("Unparseable Retry-After: {}", retryAfter);
+                return null;
+            }
+        }
+    }
+
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final LongSupplier nanoClock;
+    /**
+     * Rules by domain, which also apply to its subdomains.
+     */
+    private final Map<String, Rule> rules = new ConcurrentHashMap<>();
+
+    public HostRateLimiter(@NonNull final LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Wait for a turn at the host, if it has a rule or a fallback interval is given.
+     */
+    public void acquire(@NonNull final String host, final Duration fallbackInterval) throws InterruptedException {
+        final long waitNanos = reserve(host, fallbackInterval);
+        if (waitNanos > 0) {
+            log.info("Sleeping {}ms for {}", waitNanos / 1_000_000, host);
+            Thread.sleep(Duration.ofNanos(waitNanos));
+        }
+    }
+
+    private Bucket bucketFor(final String host, final Duration fallbackInterval) {
+        final Bucket existing = buckets.get(host);
+        if (existing != null) {
+            return existing;
+        }
+        final Rule rule = ruleFor(host);
+        if (rule == null && fallbackInterval == null) {
+            return null;
+        }
+        return buckets.computeIfAbsent(host, h -> new Bucket(rule == null ? new Rule(fallbackInterval, 1) : rule, nanoClock.getAsLong()));
+    }
+
+    /**
+     * Set the rate for a domain and its subdomains.  Hosts already seen keep their old rate.
+     */
+    public HostRateLimiter configure(
+        @NonNull final String domain,
+        @NonNull final Duration interval,
+        final int burst
+    ) {
+        if (burst < 1 || interval.isNegative()) {
+            throw new IllegalArgumentException("Bad rate for " + domain + ": " + burst + " per " + interval);
+        }
+        rules.put(domain.toLowerCase(), new Rule(interval, burst));
+        return this;
+    }
+
+    public void penalize(@NonNull final String host, final Duration retryAfter) {
+        penalize(host, retryAfter, null);
+    }
+
+    /**
+     * Pause the host for the wait, or {@link #DEFAULT_PAUSE} if none was given, and slow it down.
+     * A host seen for the first time gets the fallback interval, or none, as the rate it eases back to.
+     */
+    public void penalize(@NonNull final String host, final Duration retryAfter, final Duration fallbackInterval) {
+        final Bucket bucket = bucketFor(host.toLowerCase(), fallbackInterval == null ? Duration.ZERO : fallbackInterval);
+        final long intervalNanos = bucket.penalize(retryAfter, nanoClock.getAsLong());
+        log.warn("Slowing down for {}: every {}ms", host, intervalNanos / 1_000_000);
+    }
+
+    /**
+     * Note a request which went through, so a slowed host can speed back up.
+     */
+    public void relax(@NonNull final String host) {
+        final Bucket bucket = buckets.get(host.toLowerCase());
+        if (bucket != null) {
+            bucket.relax();
+        }
+    }
+
+    /**
+     * Take the host's next turn, returning how long to wait for it.
+     */
+    long reserve(@NonNull final String host, final Duration fallbackInterval) {
+        final Bucket bucket = bucketFor(host.toLowerCase(), fallbackInterval);
+        return bucket == null ? 0 : bucket.reserve(nanoClock.getAsLong());
+    }
+
+    private Rule ruleFor(final String host) {
+        String domain = host.toLowerCase();
+        while (true) {
+            final Rule rule = rules.get(domain);
+            if (rule != null) {
+                return rule;
+            }
+            final int dot = domain.indexOf('.');
+            if (dot < 0) {
+                return null;
+            }
+            domain = domain.substring(dot + 1);
+        }
+    }
+
+    /**
+     * A token bucket kept as the time its queue drains, so one number tracks both spare
+     * tokens and waiting callers (the "generic cell rate" formulation).
+     */
+    private static class Bucket {
+        private final long baseIntervalNanos;
+        private final int burst;
+        /**
+         * When every turn handed out so far will have been used, at one per interval.
+         */
+        private long drainsAt;
+        private long intervalNanos;
+
+        Bucket(final Rule rule, final long now) {
+            this.baseIntervalNanos = rule.interval.toNanos();
+            this.intervalNanos = baseIntervalNanos;
+            this.burst = rule.burst;
+            this.drainsAt = now;
+        }
+
+        synchronized long penalize(final Duration retryAfter, final long now) {
+            if (baseIntervalNanos > 0) {
+                intervalNanos = Math.min(intervalNanos * 2, baseIntervalNanos * MAX_SLOWDOWN);
+            }
+            final long pauseNanos = retryAfter == null ? Math.max(intervalNanos, DEFAULT_PAUSE.toNanos()) : retryAfter.toNanos();
+            // The next turn comes when the pause ends, with no burst saved up.
+            drainsAt = Math.max(drainsAt, now + pauseNanos + intervalNanos * (burst - 1));
+            return intervalNanos;
+        }
+
+        synchronized void relax() {
+            if (intervalNanos > baseIntervalNanos) {
+                intervalNanos = Math.max(baseIntervalNanos, intervalNanos - (intervalNanos - baseIntervalNanos) / 4 - 1);
+            }
+        }
+
+        synchronized long reserve(final long now) {
+            final long queueEnd = Math.max(drainsAt, now);
+            final long turnAt = queueEnd - intervalNanos * (burst - 1);
+            drainsAt = queueEnd + intervalNanos;
+            return Math.max(0, turnAt - now);
+        }
+    }
+
+    private record Rule(Duration interval, int burst) {
+    }
+}
@@ -18,6 +18,7 @@ import org.rickosborne.romance.client.JsonCookieStore;
 import org.rickosborne.romance.util.StringStuff;
 
 import java.io.File;
+import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.net.SocketTimeoutException;
@@ -25,37 +26,54 @@ import java.net.URL;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
-import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+import java.time.ZonedDateTime;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Properties;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 @Slf4j
 @RequiredArgsConstructor(access = AccessLevel.PROTECTED)
 public class HtmlScraper {
+    /**
+     * The modification time of a page marked stale by {@link #expire}.
+     */
+    public static final long EXPIRED_MS = 0L;
     public static final String HTML_FILE_EXTENSION = ".html";
+    /**
+     * Tries after the first when the host answers 429 or 503.
+     */
+    public static final int MAX_RETRIES = 2;
+    /**
+     * Per-host politeness for every scrape.  Configure a domain's rate here.
+     */
+    public static final HostRateLimiter RATE_LIMITER = HostRateLimiter.getShared();
     public static final int TIMEOUT_MS = 9000;
-    private static final Map<String, LocalDateTime> waitUntil = new ConcurrentHashMap<>();
 
+    private static File cacheFile(final URL url, final Path cachePath) {
+        return cachePath.resolve(StringStuff.cacheName(url) + HTML_FILE_EXTENSION).toFile();
+    }
+
+    /**
+     * Mark the cached page stale if it is older than the max age, so the next scrape revalidates it.
+     */
     public static void expire(
         @NonNull final URL url,
         @NonNull final Duration maxAge,
         @NonNull final Path cachePath
     ) {
-        final String fileName = StringStuff.cacheName(url) + HTML_FILE_EXTENSION;
-        final File file = cachePath.resolve(fileName).toFile();
+        final File file = cacheFile(url, cachePath);
         if (!file.isFile()) {
             return;
         }
         final long lastModifiedMs = file.lastModified();
         final Instant lastModified = Instant.ofEpochMilli(lastModifiedMs);
         if (Instant.now().minus(maxAge).isAfter(lastModified)) {
-            if (!file.delete()) {
-                log.warn("Could not delete: {}", file);
+            if (!file.setLastModified(EXPIRED_MS)) {
+                log.warn("Could not expire: {}", file);
             }
         }
     }
@@ -110,29 +128,25 @@ public class HtmlScraper {
             .build());
     }
 
+    /**
+     * The cached page, or null if there is none or it is stale.  A stale page is kept,
+     * so {@link #scrape} can revalidate it instead of downloading it again.
+     */
     protected static Document fromCache(
         @NonNull final URL url,
         @NonNull final Path cachePath,
         final Duration maxAge
     ) {
-        final String fileName = StringStuff.cacheName(url) + HTML_FILE_EXTENSION;
-        final File file = cachePath.resolve(fileName).toFile();
+        final File file = cacheFile(url, cachePath);
         if (!cachePath.toFile().exists()) {
             if (!cachePath.toFile().mkdirs()) {
                 log.warn("Could not create cachePath: {}", cachePath);
             }
         }
         if (file.isFile()) {
-            if (maxAge != null) {
-                final long lastModMS = file.lastModified();
-                final Instant lastModInstant = Instant.ofEpochMilli(lastModMS);
-                if (lastModInstant.plus(maxAge).isBefore(Instant.now())) {
-                    log.info("Cache is out of date: {}", file);
-                    if (!file.delete()) {
-                        log.warn("Could not delete: {}", file);
-                    }
-                    return null;
-                }
+            if (isStale(file, maxAge)) {
+                log.info("Cache is out of date: {}", file);
+                return null;
             }
             try {
                 Cached.log.info(url.toString());
@@ -144,6 +158,14 @@ public class HtmlScraper {
         return null;
     }
 
+    private static boolean isStale(final File file, final Duration maxAge) {
+        final long lastModMS = file.lastModified();
+        if (lastModMS == EXPIRED_MS) {
+            return true;
+        }
+        return maxAge != null && Instant.ofEpochMilli(lastModMS).plus(maxAge).isBefore(Instant.now());
+    }
+
     public static Document postFormEncoded(
         @NonNull final String url,
         @NonNull final RequestExtras requestExtras
@@ -169,29 +191,57 @@ public class HtmlScraper {
                 if (cachedDoc != null) {
                     return new HtmlScraper(scrape.cachePath, scrape.cookieStore, cachedDoc, scrape.url);
                 }
-                if (scrape.delay != null) {
-                    final String host = scrape.url.getHost();
-                    final LocalDateTime maybeNext = waitUntil.get(host);
-                    final Long ms = maybeNext == null ? null : ChronoUnit.MILLIS.between(LocalDateTime.now(), maybeNext);
-                    if (ms != null && ms > 0) {
-                        log.info("Sleeping {}ms for {}", ms, host);
-                        Thread.sleep(ms);
-                    }
-                    waitUntil.put(host, LocalDateTime.now().plus(scrape.delay, ChronoUnit.MILLIS));
-                }
             }
+            final File staleFile = scrape.cachePath == null ? null : cacheFile(scrape.url, scrape.cachePath);
+            final Validators validators = staleFile != null && staleFile.isFile() ? Validators.readFor(staleFile) : null;
+            final Map<String, String> headers = new HashMap<>(Optional.ofNullable(scrape.headers).orElseGet(Collections::emptyMap));
+            if (validators != null) {
+                validators.addTo(headers);
+            }
+            final String host = scrape.url.getHost();
+            final Duration fallbackInterval = scrape.delay == null ? null : Duration.ofMillis(scrape.delay);
             final String scrapeUrl = scrape.url.toString();
-            Fetched.log.info(scrapeUrl);
-            final Document liveDoc = Jsoup.connect(scrapeUrl)
-                .cookieStore(scrape.cookieStore)
-                .headers(Optional.ofNullable(scrape.headers).orElseGet(Collections::emptyMap))
-                .timeout(TIMEOUT_MS)
-                .get();
+            Connection.Response response = null;
+            for (int attempt = 0; attempt <= MAX_RETRIES; attempt++) {
+                RATE_LIMITER.acquire(host, fallbackInterval);
+                Fetched.log.info(scrapeUrl);
+                response = Jsoup.connect(scrapeUrl)
+                    .cookieStore(scrape.cookieStore)
+                    .headers(headers)
+                    .timeout(TIMEOUT_MS)
+                    .ignoreHttpErrors(true)
+                    .execute();
+                final int status = response.statusCode();
+                if (status != 429 && status != 503) {
+                    break;
+                }
+                RATE_LIMITER.penalize(host, HostRateLimiter.parseRetryAfter(response.header("Retry-After"), ZonedDateTime.now()), fallbackInterval);
+            }
+            if (response.statusCode() >= 400) {
+                log.warn("HTTP {} for {}", response.statusCode(), scrapeUrl);
+                return new HtmlScraper(scrape.cachePath, scrape.cookieStore, null, scrape.url);
+            }
+            RATE_LIMITER.relax(host);
+            if (response.statusCode() == 304 && validators != null) {
+                log.info("Not modified: {}", scrapeUrl);
+                if (!staleFile.setLastModified(System.currentTimeMillis())) {
+                    log.warn("Could not refresh: {}", staleFile);
+                }
+                Validators.fromResponse(response).orElse(validators).writeFor(staleFile);
+                return new HtmlScraper(scrape.cachePath, scrape.cookieStore, Jsoup.parse(staleFile), scrape.url);
+            }
+            final Document liveDoc = response.parse();
             if (scrape.cachePath != null) {
-                final String fileName = StringStuff.cacheName(scrape.url) + HTML_FILE_EXTENSION;
-                try (final FileWriter fw = new FileWriter(scrape.cachePath.resolve(fileName).toFile())) {
+                final File file = cacheFile(scrape.url, scrape.cachePath);
+                try (final FileWriter fw = new FileWriter(file)) {
                     fw.write(liveDoc.outerHtml());
                 }
+                final Optional<Validators> fresh = Validators.fromResponse(response);
+                if (fresh.isPresent()) {
+                    fresh.get().writeFor(file);
+                } else {
+                    Validators.deleteFor(file);
+                }
             }
             return new HtmlScraper(scrape.cachePath, scrape.cookieStore, liveDoc, scrape.url);
         } catch (SocketTimeoutException | HttpStatusException e) {
@@ -345,10 +395,79 @@ public class HtmlScraper {
     public static class Scrape {
         Path cachePath;
         JsonCookieStore cookieStore;
+        /**
+         * Milliseconds between requests, for a host without its own rate in {@link #RATE_LIMITER}.
+         */
         Integer delay;
         Map<String, String> headers;
         Duration maxAge;
         @NonNull
         URL url;
     }
+
+    /**
+     * The {@code ETag} and {@code Last-Modified} a page was served with, kept beside it
+     * for conditional requests.
+     */
+    record Validators(String etag, String lastModified) {
+        static final String FILE_EXTENSION = ".validators";
+
+        static void deleteFor(final File page) {
+            final File file = fileFor(page);
+            if (file.isFile() && !file.delete()) {
+                log.warn("Could not delete: {}", file);
+            }
+        }
+
+        private static File fileFor(final File page) {
+            return new File(page.getPath() + FILE_EXTENSION);
+        }
+
+        static Optional<Validators> fromResponse(final Connection.Response response) {
+            final String etag = response.header("ETag");
+            final String lastModified = response.header("Last-Modified");
+            if (etag == null && lastModified == null) {
+                return Optional.empty();
+            }
+            return Optional.of(new Validators(etag, lastModified));
+        }
+
+        static Validators readFor(final File page) {
+            final File file = fileFor(page);
+            if (!file.isFile()) {
+                return null;
+            }
+            final Properties properties = new Properties();
+            try (final FileReader reader = new FileReader(file)) {
+                properties.load(reader);
+            } catch (IOException e) {
+                log.warn("Could not read: {}; {}", file, e.getMessage());
+                return null;
+            }
+            final Validators validators = new Validators(properties.getProperty("etag"), properties.getProperty("last-modified"));
+            return validators.etag == null && validators.lastModified == null ? null : validators;
+        }
+
+        void addTo(final Map<String, String> headers) {
+            if (etag != null) {
+                headers.put("If-None-Match", etag);
+            }
+            if (lastModified != null) {
+                headers.put("If-Modified-Since", lastModified);
+            }
+        }
+
+        void writeFor(final File page) throws IOException {
+            final Properties properties = new Properties();
+            if (etag != null) {
+                properties.setProperty("etag", etag);
+            }
+            if (lastModified != null) {
+                properties.setProperty("last-modified", lastModified);
+            }
+            try (final FileWriter writer = new FileWriter(fileFor(page))) {
+                properties.store(writer, null);
+            }
+        }
+    }
 }
@@ -37,7 +37,6 @@ import static org.rickosborne.romance.util.StringStuff.urlFromString;
 @Slf4j
 @RequiredArgsConstructor
 public class StoryGraphHtml {
-    public static final int DELAY_MS = 4000;
     public static final String REMEMBER_COOKIE_NAME = "remember_user_token";
     public static final String SESSION_COOKIE_NAME = "_storygraph_beta_session";
     private static final Set<String> relevantCookieNames = Set.of(REMEMBER_COOKIE_NAME, SESSION_COOKIE_NAME);
@@ -56,7 +55,7 @@ public class StoryGraphHtml {
         final String password
     ) {
         final Session session = Optional.ofNullable(maybeSession).orElseGet(() -> new Session(cookieStore));
-        final HtmlScraper home = HtmlScraper.forUrlWithDelay(urlFromString(StoryGraph.API_BASE + "/"), null, StoryGraph.DELAY_MS, cookieStore, session.getRequestHeaders());
+        final HtmlScraper home = HtmlScraper.forUrlWithDelay(urlFromString(StoryGraph.API_BASE + "/"), null, null, cookieStore, session.getRequestHeaders());
         final String profilePath = home.selectOne("#user-menu-dropdown a[href^=/profile/]").getAttr("href");
         if (nonBlank(profilePath)) {
             log.info("Logged into StoryGraph as " + profilePath.replace("/profile/", ""));
@@ -143,7 +142,7 @@ public class StoryGraphHtml {
                     bookTitle.replace("\"", ""),
                     authorName.replace("\"", "").replace(".", ". ")
                 ), StandardCharsets.UTF_8));
-        final HtmlScraper scraper = HtmlScraper.forUrlWithDelay(url, cachePath, DELAY_MS, null, Map.of(
+        final HtmlScraper scraper = HtmlScraper.forUrlWithDelay(url, cachePath, null, null, Map.of(
             "Accept", "text/html, application/xhtml+xml",
             "Turbo-Frame", "search_results"
         ));
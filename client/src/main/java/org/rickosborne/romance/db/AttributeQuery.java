@@ -0,0 +1,163 @@
+package org.rickosborne.romance.db;
+
+import lombok.NonNull;
+import org.rickosborne.romance.db.model.SchemaAttribute;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * Conditions on model attributes, all of which must hold, which a store can translate into
+ * its own lookups instead of filtering every model.  See {@link ModelStore#stream(AttributeQuery)}.
+ * Each method returns a new query with one more condition.
+ */
+public final class AttributeQuery<M> implements Predicate<M> {
+    private static final AttributeQuery<?> ALL = new AttributeQuery<>(List.of());
+
+    public static <M> AttributeQuery<M> all() {
+        @SuppressWarnings("unchecked") final AttributeQuery<M> all = (AttributeQuery<M>) ALL;
+        return all;
+    }
+
+    private final List<Condition<M>> conditions;
+
+    private AttributeQuery(final List<Condition<M>> conditions) {
+        this.conditions = conditions;
+    }
+
+    private AttributeQuery<M> and(final Condition<M> condition) {
+        final List<Condition<M>> more = new ArrayList<>(conditions.size() + 1);
+        more.addAll(conditions);
+        more.add(condition);
+        return new AttributeQuery<>(Collections.unmodifiableList(more));
+    }
+
+    private static void checkType(final SchemaAttribute<?, ?> attribute, final Object value) {
+        if (value != null && !attribute.getAttributeType().isInstance(value)) {
+            throw new IllegalArgumentException(String.format("Expected %s for %s but found %s",
+                attribute.getAttributeType().getSimpleName(), attribute.getAttributeName(), value.getClass().getSimpleName()));
+        }
+    }
+
+    public AttributeQuery<M> eq(@NonNull final SchemaAttribute<M, ?> attribute, @NonNull final Object value) {
+        checkType(attribute, value);
+        return and(new Condition<>(attribute, Operator.Eq, value, null, null));
+    }
+
+    public List<Condition<M>> getConditions() {
+        return conditions;
+    }
+
+    public AttributeQuery<M> isNull(@NonNull final SchemaAttribute<M, ?> attribute) {
+        return and(new Condition<>(attribute, Operator.IsNull, null, null, null));
+    }
+
+    /**
+     * An arbitrary test of the attribute's value, which no store can push down.
+     */
+    public <A> AttributeQuery<M> matches(@NonNull final SchemaAttribute<M, ?> attribute, @NonNull final Predicate<A> test) {
+        @SuppressWarnings("unchecked") final Predicate<Object> typed = (Predicate<Object>) test;
+        return and(new Condition<>(attribute, Operator.Matches, null, null, typed));
+    }
+
+    public AttributeQuery<M> notNull(@NonNull final SchemaAttribute<M, ?> attribute) {
+        return and(new Condition<>(attribute, Operator.NotNull, null, null, null));
+    }
+
+    /**
+     * String values which start with the prefix, case-sensitively.
+     */
+    public AttributeQuery<M> prefix(@NonNull final SchemaAttribute<M, ?> attribute, @NonNull final String prefix) {
+        if (attribute.getAttributeType() != String.class) {
+            throw new IllegalArgumentException("Prefix needs a String attribute: " + attribute.getAttributeName());
+        }
+        return and(new Condition<>(attribute, Operator.Prefix, prefix, null, null));
+    }
+
+    /**
+     * Values from {@code from}, inclusive, up to {@code until}, exclusive.  Either end may be null
+     * to leave it open, such as for {@code LocalDate} or {@code Double} attributes.
+     */
+    public <A extends Comparable<? super A>> AttributeQuery<M> range(
+        @NonNull final SchemaAttribute<M, ?> attribute,
+        final A from,
+        final A until
+    ) {
+        if (from == null && until == null) {
+            return notNull(attribute);
+        }
+        checkType(attribute, from);
+        checkType(attribute, until);
+        return and(new Condition<>(attribute, Operator.Range, from, until, null));
+    }
+
+    /**
+     * Only the conditions a store could not push down, for filtering what it found.
+     */
+    public AttributeQuery<M> remainder(@NonNull final Predicate<Condition<M>> pushedDown) {
+        final List<Condition<M>> remaining = conditions.stream().filter(pushedDown.negate()).toList();
+        return remaining.size() == conditions.size() ? this : new AttributeQuery<>(remaining);
+    }
+
+    @Override
+    public boolean test(final M model) {
+        if (model == null) {
+            return false;
+        }
+        for (final Condition<M> condition : conditions) {
+            if (!condition.test(model)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return conditions.toString();
+    }
+
+    public enum Operator {
+        Eq,
+        IsNull,
+        Matches,
+        NotNull,
+        Prefix,
+        Range,
+    }
+
+    /**
+     * @param value  the operand for {@code Eq} and {@code Prefix}, or the lower bound for {@code Range}
+     * @param until  the exclusive upper bound for {@code Range}
+     */
+    public record Condition<M>(
+        SchemaAttribute<M, ?> attribute,
+        Operator operator,
+        Object value,
+        Object until,
+        Predicate<Object> test
+    ) {
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public boolean test(@NonNull final M model) {
+            final Object actual = attribute.getAttribute(model);
+            return switch (operator) {
+                case Eq -> Objects.equals(actual, value);
+                case IsNull -> actual == null;
+                case Matches -> test.test(actual);
+                case NotNull -> actual != null;
+                case Prefix -> actual != null && ((String) actual).startsWith((String) value);
+                case Range -> actual != null
+                    && (value == null || ((Comparable) actual).compareTo(value) >= 0)
+                    && (until == null || ((Comparable) actual).compareTo(until) < 0);
+            };
+        }
+
+        @Override
+        public String toString() {
+            return attribute.getAttributeName() + " " + operator + (value == null ? "" : " " + value) + (until == null ? "" : " until " + until);
+        }
+    }
+}
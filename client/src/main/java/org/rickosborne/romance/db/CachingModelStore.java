@@ -0,0 +1,273 @@
+package org.rickosborne.romance.db;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Wraps any {@link ModelStore} with a size-bounded, least-recently-used cache of lookups by id.
+ * {@link #findById} and {@link #findLike} read through to the wrapped store, while
+ * {@link #findByIdFromCache} only answers from memory.  Ids the wrapped store doesn't have can be remembered too, so repeated
+ * misses don't go back to it.  Saves write through and replace the cached copy.
+ * Cached models are handed out as copies unless {@code copies} is off.  Safe to share between threads.
+ */
+@Slf4j
+public class CachingModelStore<M> implements ModelStore<M>, Closeable {
+    public static final int DEFAULT_MAX_SIZE = 1_000;
+
+    /**
+     * Whether {@link #findById} hands out a copy of the cached model, so callers may change it freely.
+     */
+    private final boolean copies;
+    private final ModelStore<M> delegate;
+    @Getter
+    private final AtomicLong evictions = new AtomicLong();
+    private final Map<String, Entry<M>> entries;
+    @Getter
+    private final AtomicLong hits = new AtomicLong();
+    @Getter
+    private final int maxSize;
+    @Getter
+    private final AtomicLong misses = new AtomicLong();
+    /**
+     * Whether a lookup which found nothing is cached, so the same id isn't looked up again.
+     */
+    private final boolean negative;
+    private final LongSupplier nanoClock;
+    /**
+     * How long an entry lives, or null for as long as it stays in the cache.
+     */
+    private final Duration ttl;
+
+    @Builder
+    private CachingModelStore(
+        @NonNull final ModelStore<M> delegate,
+        final Integer maxSize,
+        final Duration ttl,
+        final boolean negative,
+        final Boolean copies,
+        final LongSupplier nanoClock
+    ) {
+        this.delegate = delegate;
+        this.maxSize = maxSize == null || maxSize < 1 ? DEFAULT_MAX_SIZE : maxSize;
+        this.ttl = ttl;
+        this.negative = negative;
+        this.copies = copies == null || copies;
+        this.nanoClock = nanoClock == null ? System::nanoTime : nanoClock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Entry<M>> eldest) {
+                if (size() > CachingModelStore.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    private synchronized void cache(final String id, final M model) {
+        if (model != null || negative) {
+            entries.put(id, new Entry<>(model, ttl == null ? Long.MAX_VALUE : nanoClock.getAsLong() + ttl.toNanos()));
+        }
+    }
+
+    private void cacheFound(final M found) {
+        final String id = found == null ? null : idFromModel(found);
+        if (id != null) {
+            cache(id, copyOf(found));
+        }
+    }
+
+    /**
+     * A copy of the cached model with the same id, counting the hit or miss.
+     */
+    private M cachedLike(final M model) {
+        final String id = idFromModel(model);
+        final Entry<M> entry = id == null ? null : entryFor(id);
+        if (entry != null && entry.model != null) {
+            hits.incrementAndGet();
+            return copyOf(entry.model);
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (delegate instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+
+    private M copyOf(final M model) {
+        if (model == null || !copies) {
+            return model;
+        }
+        return DbJsonWriter.getJsonMapper().convertValue(model, getModelType());
+    }
+
+    /**
+     * The cached entry, or null if there isn't one or it has expired.
+     */
+    private synchronized Entry<M> entryFor(final String id) {
+        final Entry<M> entry = entries.get(id);
+        if (entry != null && entry.expiresAt != Long.MAX_VALUE && nanoClock.getAsLong() - entry.expiresAt >= 0) {
+            entries.remove(id);
+            return null;
+        }
+        return entry;
+    }
+
+    @Override
+    public M findById(final String id) {
+        if (id == null) {
+            return null;
+        }
+        final Entry<M> entry = entryFor(id);
+        if (entry != null) {
+            hits.incrementAndGet();
+            return copyOf(entry.model);
+        }
+        misses.incrementAndGet();
+        final M found = delegate.findById(id);
+        cache(id, copyOf(found));
+        return found;
+    }
+
+    /**
+     * Only what is already cached, without touching the wrapped store.
+     */
+    @Override
+    public M findByIdFromCache(final String id) {
+        if (id == null) {
+            return null;
+        }
+        final Entry<M> entry = entryFor(id);
+        return entry == null ? null : copyOf(entry.model);
+    }
+
+    /**
+     * The wrapped store's own lookup, such as a fuzzy one, cached by the id of the model it finds.
+     * A model whose id is already cached is answered from memory.  Misses aren't remembered,
+     * as a fuzzy lookup may find what a lookup by id didn't.
+     */
+    @Override
+    public M findLike(final M model) {
+        if (model == null) {
+            return null;
+        }
+        final M cached = cachedLike(model);
+        if (cached != null) {
+            return cached;
+        }
+        final M found = delegate.findLike(model);
+        cacheFound(found);
+        return found;
+    }
+
+    /**
+     * As with {@link #findLike}, with the wrapped store's fallback match.
+     */
+    @Override
+    public M findLikeOrMatch(final M model, final Predicate<M> match) {
+        final M cached = cachedLike(model);
+        if (cached != null) {
+            return cached;
+        }
+        final M found = delegate.findLikeOrMatch(model, match);
+        cacheFound(found);
+        return found;
+    }
+
+    @Override
+    public DbModel getDbModel() {
+        return delegate.getDbModel();
+    }
+
+    @Override
+    public Class<M> getModelType() {
+        return delegate.getModelType();
+    }
+
+    @Override
+    public String idFromModel(final M model) {
+        return delegate.idFromModel(model);
+    }
+
+    /**
+     * Forget one id, such as after it was changed behind this store's back.
+     */
+    public synchronized void invalidate(final String id) {
+        entries.remove(id);
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    @Override
+    public M save(final M model) {
+        final M saved = delegate.save(model);
+        final M stored = saved == null ? model : saved;
+        final String id = idFromModel(stored);
+        if (id != null) {
+            cache(id, copyOf(stored));
+        }
+        return saved;
+    }
+
+    /**
+     * Compares against {@link #findLike}, which reads through, rather than only the cache,
+     * so an uncached model isn't saved unchanged.
+     */
+    @Override
+    public M saveIfChanged(final M model, final boolean doLog) {
+        final M existing = findLike(model);
+        if (!DiffPlan.forModelType(getModelType()).hasChanged(existing, model)) {
+            return model;
+        }
+        if (doLog) {
+            System.out.println("~~~ " + getDbModel().getTypeName() + "/" + idFromModel(model));
+            System.out.println(diffModels(existing, model).asDiffLines());
+        }
+        return save(model);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public Stream<M> stream() {
+        return delegate.stream();
+    }
+
+    /**
+     * Left to the wrapped store, which may look the models up directly.
+     */
+    @Override
+    public Stream<M> stream(final AttributeQuery<M> query) {
+        return delegate.stream(query);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s(%s hits=%d misses=%d evictions=%d size=%d)", getClass().getSimpleName(),
+            getModelType().getSimpleName(), hits.get(), misses.get(), evictions.get(), size());
+    }
+
+    private record Entry<M>(M model, long expiresAt) {
+    }
+}
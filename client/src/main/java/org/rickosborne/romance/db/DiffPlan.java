@@ -0,0 +1,104 @@
+package org.rickosborne.romance.db;
+
+import lombok.NonNull;
+import org.rickosborne.romance.db.model.ModelSchemas;
+import org.rickosborne.romance.db.model.SchemaAttribute;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiPredicate;
+
+import static org.rickosborne.romance.util.MathStuff.closeEnough;
+
+/**
+ * A {@link SchemaDiff} compiled for one list of attributes, with the equality check for each
+ * attribute chosen up front.  Plans for a whole model schema are cached per model class.
+ */
+public final class DiffPlan<M> {
+    private static final BiPredicate<Object, Object> CLOSE_ENOUGH = (a, b) -> closeEnough((Double) a, (Double) b);
+    private static final Map<Class<?>, DiffPlan<?>> PLANS = new ConcurrentHashMap<>();
+
+    public static <M> DiffPlan<M> forModelType(@NonNull final Class<M> modelType) {
+        @SuppressWarnings("unchecked") final DiffPlan<M> plan = (DiffPlan<M>) PLANS.computeIfAbsent(modelType, t -> new DiffPlan<>(ModelSchemas.schemaForModelType(modelType).getAttributes()));
+        return plan;
+    }
+
+    public static <M> DiffPlan<M> of(@NonNull final Iterable<SchemaAttribute<M, Object>> attributes) {
+        return new DiffPlan<>(attributes);
+    }
+
+    private final List<SchemaAttribute<M, Object>> attributes;
+    private final List<BiPredicate<Object, Object>> sameChecks;
+
+    private DiffPlan(final Iterable<SchemaAttribute<M, Object>> attributes) {
+        final List<SchemaAttribute<M, Object>> list = new ArrayList<>();
+        attributes.forEach(list::add);
+        final List<BiPredicate<Object, Object>> checks = new ArrayList<>(list.size());
+        for (final SchemaAttribute<M, Object> attribute : list) {
+            final Class<?> attributeType = attribute.getAttributeType();
+            checks.add(attributeType == Double.class ? CLOSE_ENOUGH : Objects::equals);
+        }
+        this.attributes = List.copyOf(list);
+        this.sameChecks = List.copyOf(checks);
+    }
+
+    /**
+     * Only the attributes which were added, changed, or deleted.
+     */
+    public Diff<M> diff(final M before, final M after) {
+        if (before == null && after == null) {
+            return new Diff<>(null, null, Collections.emptyList());
+        }
+        List<Diff.AttributeDiff<M, ?>> changes = null;
+        for (int i = 0; i < attributes.size(); i++) {
+            final SchemaAttribute<M, Object> attribute = attributes.get(i);
+            final Object beforeValue = before == null ? null : attribute.getAttribute(before);
+            final Object afterValue = after == null ? null : attribute.getAttribute(after);
+            final Diff.Operation operation;
+            if (before == null) {
+                operation = Diff.Operation.Add;
+            } else if (after == null) {
+                operation = Diff.Operation.Delete;
+            } else if (sameChecks.get(i).test(beforeValue, afterValue)) {
+                continue;
+            } else {
+                operation = Diff.Operation.Change;
+            }
+            if (changes == null) {
+                changes = new ArrayList<>();
+            }
+            changes.add(Diff.AttributeDiff.<M, Object>builder()
+                .afterModel(after)
+                .afterValue(afterValue)
+                .attribute(attribute)
+                .attributeType(attribute.getAttributeType())
+                .beforeModel(before)
+                .beforeValue(beforeValue)
+                .modelType(attribute.getModelType())
+                .operation(operation)
+                .build());
+        }
+        return new Diff<>(after, before, changes == null ? Collections.emptyList() : changes);
+    }
+
+    /**
+     * Same answer as {@code diff(before, after).hasChanged()}, but stops at the first
+     * difference and allocates nothing.
+     */
+    public boolean hasChanged(final M before, final M after) {
+        if (before == null || after == null) {
+            return before != after && !attributes.isEmpty();
+        }
+        for (int i = 0; i < attributes.size(); i++) {
+            final SchemaAttribute<M, Object> attribute = attributes.get(i);
+            if (!sameChecks.get(i).test(attribute.getAttribute(before), attribute.getAttribute(after))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -8,22 +8,44 @@ import org.rickosborne.romance.NamingConvention;
 import org.rickosborne.romance.db.model.ModelSchema;
 import org.rickosborne.romance.db.model.ModelSchemas;
 import org.rickosborne.romance.db.model.SchemaAttribute;
+import org.rickosborne.romance.util.Hash128;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Remembers a fingerprint of each model's attributes, so a sync can skip models it has already handled.
+ * Updates are appended to a journal in batches, and the journal is compacted when it loads
+ * with more superseded lines than live ones.  Safe to share between threads.
+ */
 @Slf4j
-public class FingerprintStore<M> {
+public class FingerprintStore<M> implements Closeable {
+    public static final int FLUSH_EVERY = 32;
+    private static final int LEGACY_FINGERPRINT_LENGTH = 64;
     private static final Path PRINTS_DIR = Path.of("book-data", "fingerprint");
-    private final Path jsonPath;
     @Getter(lazy = true, value = AccessLevel.PROTECTED)
     private final Map<String, String> fingerprints = loadFingerprints();
+    private final Path journalPath;
+    private final Path jsonPath;
     private final ModelSchema<M> modelSchema;
     private final Class<M> modelType;
     private final NamingConvention namingConvention = new NamingConvention();
+    private final List<String> unwritten = new ArrayList<>();
 
     public FingerprintStore(
         final Class<M> modelType,
@@ -32,6 +54,52 @@ public class FingerprintStore<M> {
         this.modelType = modelType;
         this.modelSchema = ModelSchemas.schemaForModelType(modelType);
         this.jsonPath = PRINTS_DIR.resolve(bucket + "-" + modelType.getSimpleName() + ".json");
+        this.journalPath = PRINTS_DIR.resolve(bucket + "-" + modelType.getSimpleName() + ".journal");
+    }
+
+    private void append(final String id, final String fingerprint) {
+        synchronized (unwritten) {
+            unwritten.add(id + "\t" + fingerprint);
+            if (unwritten.size() >= FLUSH_EVERY) {
+                flush();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+
+    private void compact(final Map<String, String> fingerprints) throws IOException {
+        final Path tempPath = journalPath.resolveSibling(journalPath.getFileName() + ".tmp");
+        try (final Writer writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
+            for (final Map.Entry<String, String> entry : fingerprints.entrySet()) {
+                writer.write(entry.getKey() + "\t" + entry.getValue() + "\n");
+            }
+        }
+        Files.move(tempPath, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Compacted {} fingerprints into {}", fingerprints.size(), journalPath);
+    }
+
+    /**
+     * Append any batched updates to the journal.
+     */
+    public void flush() {
+        synchronized (unwritten) {
+            if (unwritten.isEmpty()) {
+                return;
+            }
+            try (final BufferedWriter writer = Files.newBufferedWriter(journalPath, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (final String line : unwritten) {
+                    writer.write(line);
+                    writer.write('\n');
+                }
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Could not append to " + journalPath, e);
+            }
+            unwritten.clear();
+        }
     }
 
     @SneakyThrows
@@ -41,6 +109,17 @@ public class FingerprintStore<M> {
         if (expected == null) {
             return true;
         }
+        if (expected.length() == LEGACY_FINGERPRINT_LENGTH) {
+            if (!expected.equals(takeLegacyFingerprint(model))) {
+                return true;
+            }
+            // Unchanged since the SHA-256 days, so carry it forward in the cheaper form.
+            final String fingerprint = takeFingerprint(model);
+            if (getFingerprints().replace(id, expected, fingerprint)) {
+                append(id, fingerprint);
+            }
+            return false;
+        }
         final String actual = takeFingerprint(model);
         return !expected.equals(actual);
     }
@@ -50,19 +129,52 @@ public class FingerprintStore<M> {
             log.info("mkdir -p {}", PRINTS_DIR);
         }
         assert jsonPath != null;
-        if (jsonPath.toFile().isFile()) {
-            @SuppressWarnings("unchecked") final Map<String, String> fingerPrints = DbJsonWriter.readFile(jsonPath.toFile(), HashMap.class);
-            return fingerPrints;
+        final Map<String, String> fingerprints = new ConcurrentHashMap<>();
+        try {
+            if (journalPath.toFile().isFile()) {
+                int lines = 0;
+                try (final BufferedReader reader = Files.newBufferedReader(journalPath, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        final int tab = line.indexOf('\t');
+                        if (tab > 0) {
+                            fingerprints.put(line.substring(0, tab), line.substring(tab + 1));
+                            lines++;
+                        }
+                    }
+                }
+                if (lines > fingerprints.size() * 2 + FLUSH_EVERY) {
+                    compact(fingerprints);
+                }
+            } else if (jsonPath.toFile().isFile()) {
+                @SuppressWarnings("unchecked") final Map<String, String> legacy = DbJsonWriter.readFile(jsonPath.toFile(), HashMap.class);
+                fingerprints.putAll(legacy);
+                compact(fingerprints);
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not load fingerprints from " + journalPath, e);
         }
-        return new HashMap<>();
+        return fingerprints;
     }
 
     private String modelId(final M model) {
         return namingConvention.fileNameFromTexts(modelSchema.idValuesFromModel(model).stream());
     }
 
-    @SneakyThrows
     private String takeFingerprint(final M model) {
+        final Hash128 hash = new Hash128();
+        for (final SchemaAttribute<M, Object> attribute : modelSchema.getAttributes()) {
+            hash.putString(attribute.getAttributeName());
+            hash.putValue(attribute.getAttribute(model));
+        }
+        return hash.toHex();
+    }
+
+    /**
+     * The original SHA-256 fingerprint, only used to recognize entries written before the journal.
+     */
+    @SneakyThrows
+    private String takeLegacyFingerprint(final M model) {
         final MessageDigest digest = MessageDigest.getInstance("SHA-256");
         for (final SchemaAttribute<M, Object> attribute : modelSchema.getAttributes()) {
             final String name = attribute.getAttributeName();
@@ -74,22 +186,19 @@ public class FingerprintStore<M> {
         }
         final BigInteger bigInt = new BigInteger(1, digest.digest());
         final StringBuilder sb = new StringBuilder(bigInt.toString(16));
-        while (sb.length() < 64) {
+        while (sb.length() < LEGACY_FINGERPRINT_LENGTH) {
             sb.insert(0, "0");
         }
         return sb.toString();
     }
 
-    @SneakyThrows
     public void updateFingerprint(final M model) {
         final String id = modelId(model);
         final String fingerprint = takeFingerprint(model);
-        final Map<String, String> fingerprints = getFingerprints();
-        final String existing = fingerprints.get(id);
+        final String existing = getFingerprints().put(id, fingerprint);
         if (fingerprint.equals(existing)) {
             return;
         }
-        fingerprints.put(id, fingerprint);
-        DbJsonWriter.getJsonWriter().writeValue(jsonPath.toFile(), fingerprints);
+        append(id, fingerprint);
     }
 }
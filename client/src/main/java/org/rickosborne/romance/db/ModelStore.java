@@ -10,7 +10,7 @@ public interface ModelStore<M> {
     }
 
     default Diff<M> diffModels(final M before, final M after) {
-        return new SchemaDiff().diffModels(before, after);
+        return DiffPlan.forModelType(getModelType()).diff(before, after);
     }
 
     M findById(final String id);
@@ -63,15 +63,15 @@ public interface ModelStore<M> {
     }
 
     default M saveIfChanged(final M model, final boolean doLog) {
-        final Diff<M> diff = diffFromCache(model);
-        if (diff.hasChanged()) {
+        final M cached = findLikeFromCache(model);
+        if (DiffPlan.forModelType(getModelType()).hasChanged(cached, model)) {
             final String id = idFromModel(model);
             if (id == null) {
                 throw new NullPointerException("No id: " + model);
             }
             if (doLog) {
                 System.out.println("~~~ " + getDbModel().getTypeName() + "/" + id);
-                System.out.println(diff.asDiffLines());
+                System.out.println(diffModels(cached, model).asDiffLines());
             }
             return save(model);
         }
@@ -79,4 +79,12 @@ public interface ModelStore<M> {
     }
 
     Stream<M> stream();
+
+    /**
+     * The models matching every condition of the query.  Stores which can look these up
+     * directly override this, and the rest filter {@link #stream()}.
+     */
+    default Stream<M> stream(final AttributeQuery<M> query) {
+        return stream().filter(query);
+    }
 }
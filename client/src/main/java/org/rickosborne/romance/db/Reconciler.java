@@ -0,0 +1,198 @@
+package org.rickosborne.romance.db;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lines up the models of two or three stores by id in a single merge-join pass, instead of
+ * looking each model from one store up in the others.  Every store is read once and sorted by
+ * the shared id, then the sorted runs are walked together.  A model whose id is null, or which
+ * repeats an id already seen in its own store, comes out alone rather than being dropped.
+ */
+public final class Reconciler<M> {
+    private static final Comparator<Keyed<?>> BY_KEY = Comparator.comparing(k -> k.key, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    /**
+     * Joins on the first store's ids, applied to the models of every store.
+     */
+    public static <M> Reconciler<M> byIdOf(@NonNull final ModelStore<M> store) {
+        return new Reconciler<>(store.getModelType(), store::idFromModel);
+    }
+
+    private final Function<M, String> idFunction;
+    private final Class<M> modelType;
+
+    public Reconciler(
+        @NonNull final Class<M> modelType,
+        @NonNull final Function<M, String> idFunction
+    ) {
+        this.modelType = modelType;
+        this.idFunction = idFunction;
+    }
+
+    public Stream<Reconciled<M>> join(
+        @NonNull final ModelStore<M> left,
+        @NonNull final ModelStore<M> right
+    ) {
+        return join(left.stream(), null, right.stream());
+    }
+
+    public Stream<Reconciled<M>> join(
+        @NonNull final ModelStore<M> left,
+        @NonNull final ModelStore<M> middle,
+        @NonNull final ModelStore<M> right
+    ) {
+        return join(left.stream(), middle.stream(), right.stream());
+    }
+
+    /**
+     * Joins models from any source, such as a filtered store.  The middle may be null for a two-way join.
+     * The source streams are consumed and closed before the first result is returned.
+     */
+    public Stream<Reconciled<M>> join(
+        @NonNull final Stream<M> left,
+        final Stream<M> middle,
+        @NonNull final Stream<M> right
+    ) {
+        final List<Keyed<M>> lefts = sorted(left);
+        final List<Keyed<M>> middles = middle == null ? List.of() : sorted(middle);
+        final List<Keyed<M>> rights = sorted(right);
+        final boolean threeWay = middle != null;
+        final Iterator<Reconciled<M>> iterator = new Iterator<>() {
+            private int l = 0;
+            private int m = 0;
+            private int r = 0;
+
+            @Override
+            public boolean hasNext() {
+                return l < lefts.size() || m < middles.size() || r < rights.size();
+            }
+
+            @Override
+            public Reconciled<M> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final String key = lowest(
+                    l < lefts.size() ? lefts.get(l) : null,
+                    m < middles.size() ? middles.get(m) : null,
+                    r < rights.size() ? rights.get(r) : null
+                );
+                if (key == null) {
+                    // Only models without ids remain, and those never match.
+                    if (l < lefts.size()) {
+                        return new Reconciled<>(modelType, threeWay, null, lefts.get(l++).model, null, null);
+                    } else if (m < middles.size()) {
+                        return new Reconciled<>(modelType, threeWay, null, null, middles.get(m++).model, null);
+                    }
+                    return new Reconciled<>(modelType, threeWay, null, null, null, rights.get(r++).model);
+                }
+                final M leftModel = l < lefts.size() && key.equals(lefts.get(l).key) ? lefts.get(l++).model : null;
+                final M middleModel = m < middles.size() && key.equals(middles.get(m).key) ? middles.get(m++).model : null;
+                final M rightModel = r < rights.size() && key.equals(rights.get(r).key) ? rights.get(r++).model : null;
+                return new Reconciled<>(modelType, threeWay, key, leftModel, middleModel, rightModel);
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    private static String lowest(final Keyed<?>... heads) {
+        String lowest = null;
+        for (final Keyed<?> head : heads) {
+            if (head != null && head.key != null && (lowest == null || head.key.compareTo(lowest) < 0)) {
+                lowest = head.key;
+            }
+        }
+        return lowest;
+    }
+
+    private List<Keyed<M>> sorted(final Stream<M> models) {
+        final List<Keyed<M>> keyed = new ArrayList<>();
+        try (models) {
+            models.forEach(model -> keyed.add(new Keyed<>(idFunction.apply(model), model)));
+        }
+        keyed.sort(BY_KEY);
+        return keyed;
+    }
+
+    public enum Side {
+        Left,
+        Middle,
+        Right,
+    }
+
+    private record Keyed<M>(String key, M model) {
+    }
+
+    /**
+     * One id's worth of models: at most one from each store, and null where a store has none.
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static class Reconciled<M> {
+        private final Class<M> modelType;
+        private final boolean threeWay;
+        private final String id;
+        private final M left;
+        private final M middle;
+        private final M right;
+
+        /**
+         * Changes from the left model to the right one, when both are present.
+         */
+        public Diff<M> diff() {
+            return diff(Side.Left, Side.Right);
+        }
+
+        /**
+         * Changes from one side's model to another's, or null unless both are present.
+         */
+        public Diff<M> diff(@NonNull final Side before, @NonNull final Side after) {
+            final M beforeModel = get(before);
+            final M afterModel = get(after);
+            if (beforeModel == null || afterModel == null) {
+                return null;
+            }
+            return DiffPlan.forModelType(modelType).diff(beforeModel, afterModel);
+        }
+
+        public M get(@NonNull final Side side) {
+            return switch (side) {
+                case Left -> left;
+                case Middle -> middle;
+                case Right -> right;
+            };
+        }
+
+        public boolean isLeftOnly() {
+            return left != null && middle == null && right == null;
+        }
+
+        /**
+         * Whether every side which was joined has a model: left and right, plus middle for a three-way join.
+         */
+        public boolean isMatched() {
+            return left != null && right != null && (!threeWay || middle != null);
+        }
+
+        public boolean isMiddleOnly() {
+            return left == null && middle != null && right == null;
+        }
+
+        public boolean isRightOnly() {
+            return left == null && middle == null && right != null;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package org.rickosborne.romance.db.json;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.rickosborne.romance.NamingConvention;
+import org.rickosborne.romance.db.AttributeQuery;
+import org.rickosborne.romance.db.DbModel;
+import org.rickosborne.romance.db.model.ModelSchema;
+import org.rickosborne.romance.util.Pair;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A {@link JsonStore} which reads its directory once, then answers lookups from memory.
+ * Callers always receive copies, so mutating a returned model does not change what
+ * {@link #findByIdFromCache} reports until it is saved.  Models read from an unchanged
+ * {@link JsonStoreSnapshot} entry are only parsed once a lookup reaches them.
+ */
+@Slf4j
+public class IndexedJsonStore<M> extends JsonStore<M> {
+    private final Map<String, JsonStoreIndex<M>> indexes = new LinkedHashMap<>();
+    @Getter(lazy = true, value = AccessLevel.PRIVATE)
+    private final Map<String, LazyModel<M>> modelsById = loadModels();
+
+    public IndexedJsonStore(
+        @NonNull final DbModel dbModel,
+        @NonNull final ModelSchema<M> modelSchema,
+        @NonNull final Class<M> modelType,
+        @NonNull final NamingConvention namingConvention,
+        @NonNull final Path typePath,
+        @NonNull final List<JsonStoreIndex<M>> indexes
+    ) {
+        super(dbModel, modelSchema, modelType, namingConvention, typePath);
+        for (final JsonStoreIndex<M> index : indexes) {
+            this.indexes.put(index.getIndexName(), index);
+        }
+    }
+
+    protected M copyOf(final M model) {
+        if (model == null) {
+            return null;
+        }
+        return getJsonMapper().convertValue(model, getModelType());
+    }
+
+    public List<M> findByIndex(@NonNull final String indexName, final String key) {
+        final Map<String, LazyModel<M>> models = getModelsById();
+        return index(indexName).idsForKey(key).stream()
+            .map(models::get)
+            .filter(Objects::nonNull)
+            .map(LazyModel::get)
+            .map(this::copyOf)
+            .collect(Collectors.toList());
+    }
+
+    @Override
+    public M findByIdFromCache(final String id) {
+        if (id == null) {
+            return null;
+        }
+        return copyOf(modelFor(getModelsById().get(keyForId(id))));
+    }
+
+    @Override
+    public M findLikeOrMatch(final M model, final Predicate<M> match) {
+        final String id = idFromModel(model);
+        final Map<String, LazyModel<M>> models = getModelsById();
+        if (id != null) {
+            final M found = modelFor(models.get(keyForId(id)));
+            if (found != null) {
+                return copyOf(found);
+            }
+        }
+        for (final JsonStoreIndex<M> index : indexes.values()) {
+            final M candidate = index.keysFor(model)
+                .flatMap(key -> index.idsForKey(key).stream())
+                .map(models::get)
+                .filter(Objects::nonNull)
+                .map(LazyModel::get)
+                .filter(match)
+                .findAny()
+                .orElse(null);
+            if (candidate != null) {
+                return copyOf(candidate);
+            }
+        }
+        return copyOf(models.values().stream().map(LazyModel::get).filter(match).findAny().orElse(null));
+    }
+
+    public JsonStoreIndex<M> index(@NonNull final String indexName) {
+        final JsonStoreIndex<M> index = indexes.get(indexName);
+        if (index == null) {
+            throw new IllegalArgumentException("No index " + indexName + " for " + getModelType().getSimpleName());
+        }
+        return index;
+    }
+
+    @Override
+    public Iterator<M> iterator() {
+        return stream().iterator();
+    }
+
+    private M modelFor(final LazyModel<M> loaded) {
+        return loaded == null ? null : loaded.get();
+    }
+
+    private String keyForId(@NonNull final String id) {
+        return getNamingConvention().fileNameFromTexts(id);
+    }
+
+    private Map<String, LazyModel<M>> loadModels() {
+        final Map<String, LazyModel<M>> models = new ConcurrentHashMap<>();
+        super.streamLazy(false).forEach(loaded -> {
+            final String fileName = loaded.getFile().getName();
+            final String key = fileName.substring(0, fileName.length() - FILE_EXT.length());
+            models.put(key, loaded);
+            // Keys come in index order, as snapshotIndexKeys lists them.
+            final List<List<String>> snapshotKeys = loaded.getKeys();
+            int at = 0;
+            for (final JsonStoreIndex<M> index : indexes.values()) {
+                if (snapshotKeys == null || at >= snapshotKeys.size()) {
+                    index.add(key, loaded.get());
+                } else {
+                    index.addKeys(key, snapshotKeys.get(at));
+                }
+                at++;
+            }
+        });
+        log.debug("Indexed {} {} models", models.size(), getModelType().getSimpleName());
+        return models;
+    }
+
+    @Override
+    public M save(final M model) {
+        final M saved = super.save(model);
+        final String key = keyForId(idFromModel(saved));
+        final M stored = copyOf(saved);
+        final Map<String, LazyModel<M>> models = getModelsById();
+        synchronized (indexes) {
+            final M previous = modelFor(models.put(key, LazyModel.of(null, stored, null)));
+            for (final JsonStoreIndex<M> index : indexes.values()) {
+                if (previous != null) {
+                    index.remove(key, previous);
+                }
+                index.add(key, stored);
+            }
+        }
+        return saved;
+    }
+
+    @Override
+    protected List<List<String>> snapshotIndexKeys(@NonNull final M model) {
+        return indexes.values().stream()
+            .map(index -> index.keysFor(model).collect(Collectors.toList()))
+            .collect(Collectors.toList());
+    }
+
+    @Override
+    protected List<String> snapshotIndexNames() {
+        return List.copyOf(indexes.keySet());
+    }
+
+    @Override
+    public Stream<M> stream() {
+        return getModelsById().values().stream().map(LazyModel::get).map(this::copyOf);
+    }
+
+    /**
+     * Filters in memory, starting from an attribute index when the query has an equality
+     * condition on an indexed attribute.  Only the matches are copied.
+     */
+    @Override
+    public Stream<M> stream(@NonNull final AttributeQuery<M> query) {
+        final Map<String, LazyModel<M>> models = getModelsById();
+        for (final AttributeQuery.Condition<M> condition : query.getConditions()) {
+            if (condition.operator() != AttributeQuery.Operator.Eq || condition.value().toString().isBlank()) {
+                continue;
+            }
+            for (final JsonStoreIndex<M> index : indexes.values()) {
+                if (index.getAttribute() == condition.attribute()) {
+                    final AttributeQuery<M> remainder = query.remainder(c -> c == condition);
+                    return index.idsForKey(condition.value().toString()).stream()
+                        .map(models::get)
+                        .filter(Objects::nonNull)
+                        .map(LazyModel::get)
+                        .filter(remainder)
+                        .map(this::copyOf);
+                }
+            }
+        }
+        return models.values().stream().map(LazyModel::get).filter(query).map(this::copyOf);
+    }
+
+    @Override
+    protected Stream<Pair<M, File>> streamWithFiles(final boolean ordered) {
+        return getModelsById().entrySet().stream()
+            .map(e -> Pair.build(copyOf(e.getValue().get()), getTypePath().resolve(e.getKey() + FILE_EXT).toFile()));
+    }
+}
@@ -3,10 +3,12 @@ package org.rickosborne.romance.db.json;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.rickosborne.romance.NamingConvention;
 import org.rickosborne.romance.db.DbJsonWriter;
@@ -17,10 +19,21 @@ import org.rickosborne.romance.util.Pair;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 @Slf4j
@@ -34,12 +47,32 @@ public class JsonStore<M> implements ModelStore<M>, Iterable<M> {
     private final ObjectMapper jsonMapper = DbJsonWriter.getJsonMapper();
     @Getter(lazy = true, value = AccessLevel.PROTECTED)
     private final ObjectWriter jsonWriter = DbJsonWriter.getJsonWriter();
+    /**
+     * How many files {@link #streamWithFiles()} parses at once.
+     */
+    @Setter
+    private int loadParallelism = 1;
     @Getter
     private final ModelSchema<M> modelSchema;
+    /**
+     * Optional binary copy of this store's directory, used by {@link #streamWithFiles()}.
+     */
+    @Setter
+    private JsonStoreSnapshot snapshot;
     @Getter
     private final Class<M> modelType;
     private final NamingConvention namingConvention;
     private final Path typePath;
+    /**
+     * When set, saves are batched instead of written immediately.
+     */
+    @Setter
+    private WriteBehindBuffer writeBehind;
+    /**
+     * The latest snapshot pass, until it has written the snapshot.
+     */
+    @Getter(AccessLevel.NONE)
+    private final AtomicReference<SnapshotPass> openPass = new AtomicReference<>();
 
     protected File fileForId(@NonNull final String id) {
         final String fileName = namingConvention.fileNameFromTexts(id) + FILE_EXT;
@@ -81,6 +114,7 @@ public class JsonStore<M> implements ModelStore<M>, Iterable<M> {
 
     @Override
     public Iterator<M> iterator() {
+        flush();
         int[] at = {0};
         final File[] files = listFiles();
         return new Iterator<>() {
@@ -96,11 +130,14 @@ public class JsonStore<M> implements ModelStore<M>, Iterable<M> {
         };
     }
 
-    private File[] listFiles() {
+    protected File[] listFiles() {
         return typePath.toFile().listFiles(fn -> fn.isFile() && fn.getName().endsWith(FILE_EXT));
     }
 
-    private M loadFromFile(@NonNull final File file) {
+    protected M loadFromFile(@NonNull final File file) {
+        if (writeBehind != null) {
+            return loadThroughWriteBehind(file);
+        }
         if (file.isFile()) {
             try {
                 return getJsonMapper().readValue(file, modelType);
@@ -111,6 +148,37 @@ public class JsonStore<M> implements ModelStore<M>, Iterable<M> {
         return null;
     }
 
+    private M loadThroughWriteBehind(@NonNull final File file) {
+        try {
+            final byte[] pending = writeBehind.pendingFor(file);
+            if (pending != null) {
+                return getJsonMapper().readValue(pending, modelType);
+            }
+            if (!file.isFile()) {
+                return null;
+            }
+            final byte[] bytes = Files.readAllBytes(file.toPath());
+            writeBehind.remember(file, bytes);
+            return getJsonMapper().readValue(bytes, modelType);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not load " + modelType.getSimpleName() + "#" + file, e);
+        }
+    }
+
+    /**
+     * Write out anything held by the {@link WriteBehindBuffer}, if there is one,
+     * and the snapshot from a pass which stopped early.
+     */
+    public void flush() {
+        if (writeBehind != null) {
+            writeBehind.flush();
+        }
+        final SnapshotPass pass = openPass.get();
+        if (pass != null) {
+            pass.finish();
+        }
+    }
+
     @Override
     public M save(final M model) {
         final File modelFile = fileForModel(model);
@@ -118,6 +186,10 @@ public class JsonStore<M> implements ModelStore<M>, Iterable<M> {
             throw new NullPointerException("Cannot save incomplete " + getModelType().getSimpleName() + ": " + model);
         }
         try {
+            if (writeBehind != null) {
+                writeBehind.stage(modelFile, getJsonWriter().writeValueAsBytes(model));
+                return model;
+            }
             if (!typePath.toFile().exists()) {
                 if (typePath.toFile().mkdirs()) {
                     log.debug("Created directory: " + typePath);
@@ -130,6 +202,21 @@ public class JsonStore<M> implements ModelStore<M>, Iterable<M> {
         return model;
     }
 
+    /**
+     * With a {@link WriteBehindBuffer}, a model whose JSON matches what was last read or
+     * written is skipped without re-reading and diffing the stored copy.
+     */
+    @Override
+    public M saveIfChanged(final M model, final boolean doLog) {
+        if (writeBehind != null) {
+            final File modelFile = fileForModel(model);
+            if (modelFile != null && writeBehind.isCurrent(modelFile, serializeModel(model).getBytes(StandardCharsets.UTF_8))) {
+                return model;
+            }
+        }
+        return ModelStore.super.saveIfChanged(model, doLog);
+    }
+
     protected String serializeModel(@NonNull final M model) {
         try {
             return getJsonWriter().writeValueAsString(model);
@@ -143,20 +230,189 @@ public class JsonStore<M> implements ModelStore<M>, Iterable<M> {
         return streamWithFiles().map(Pair::getLeft);
     }
 
+    private Pair<M, File> loadPairOrDelete(@NonNull final File file) {
+        final M model = loadFromFile(file);
+        if (model == null) {
+            if (file.delete()) {
+                log.info("Deleted broken file: " + file);
+            }
+            return null;
+        }
+        return Pair.build(model, file);
+    }
+
+    private LazyModel<M> loadWithoutKeys(final File file) {
+        final Pair<M, File> pair = loadPairOrDelete(file);
+        return pair == null ? null : LazyModel.of(pair.getRight(), pair.getLeft(), null);
+    }
+
+    /**
+     * Models in directory listing order.  Files are parsed {@link #loadParallelism} at a time.
+     */
     public Stream<Pair<M, File>> streamWithFiles() {
-        final File[] files = listFiles();
+        return streamWithFiles(true);
+    }
+
+    protected Stream<Pair<M, File>> streamWithFiles(final boolean ordered) {
+        return streamLazy(ordered).map(loaded -> Pair.build(loaded.get(), loaded.getFile()));
+    }
+
+    /**
+     * Like {@link #streamWithFiles(boolean)}, but each model comes with its keys for the
+     * {@link #snapshotIndexNames}, as the snapshot pass already has them, or null without a snapshot.
+     * Models whose snapshot entry is current are not parsed until {@link LazyModel#get()}.
+     */
+    Stream<LazyModel<M>> streamLazy(final boolean ordered) {
+        flush();
+        if (snapshot == null) {
+            final File[] files = listFiles();
+            if (files == null || files.length == 0) {
+                return Stream.empty();
+            }
+            return streamLoads(files, ordered, this::loadWithoutKeys);
+        }
+        // The pass reads each file's attributes itself, so the listing does not stat.
+        final File[] files = typePath.toFile().listFiles((dir, name) -> name.endsWith(FILE_EXT));
         if (files == null || files.length == 0) {
             return Stream.empty();
         }
-        return Stream.of(files).map(file -> {
-            final M model = loadFromFile(file);
-            if (model == null) {
-                if (file.delete()) {
-                    log.info("Deleted broken file: " + file);
+        final SnapshotPass pass = new SnapshotPass(snapshot, files);
+        openPass.set(pass);
+        return streamLoads(files, ordered, pass::load).onClose(pass::finish);
+    }
+
+    private Stream<LazyModel<M>> streamLoads(
+        final File[] files,
+        final boolean ordered,
+        final Function<File, LazyModel<M>> load
+    ) {
+        if (loadParallelism <= 1 || files.length == 1) {
+            return Stream.of(files).map(load).filter(Objects::nonNull);
+        }
+        return ParallelFileLoader.stream(files, loadParallelism, ordered, load).filter(Objects::nonNull);
+    }
+
+    /**
+     * Like {@link #streamWithFiles()}, but each model arrives as soon as it is parsed.
+     */
+    public Stream<Pair<M, File>> streamWithFilesUnordered() {
+        return streamWithFiles(false);
+    }
+
+    /**
+     * Index names whose keys {@link #snapshotIndexKeys} records in the snapshot.
+     */
+    protected List<String> snapshotIndexNames() {
+        return Collections.emptyList();
+    }
+
+    protected List<List<String>> snapshotIndexKeys(@NonNull final M model) {
+        return Collections.emptyList();
+    }
+
+    /**
+     * One pass over the directory which takes unchanged files from the snapshot, then rewrites
+     * the snapshot if any had changed.  The rewrite happens once every file has been seen or,
+     * for a pass which stopped early, when the stream is closed, the store is flushed, or the
+     * next pass starts, whichever comes first.
+     */
+    private class SnapshotPass {
+        private final AtomicBoolean changed;
+        private final Map<String, JsonStoreSnapshot.Entry> entries = new ConcurrentHashMap<>();
+        private final File[] files;
+        private final AtomicBoolean finished = new AtomicBoolean(false);
+        private final List<String> indexNames = snapshotIndexNames();
+        private final boolean keysMatch;
+        private final AtomicInteger remaining;
+        private final JsonStoreSnapshot passSnapshot;
+
+        SnapshotPass(@NonNull final JsonStoreSnapshot passSnapshot, @NonNull final File[] files) {
+            this.passSnapshot = passSnapshot;
+            this.files = files;
+            this.remaining = new AtomicInteger(files.length);
+            this.keysMatch = indexNames.equals(passSnapshot.getIndexNames());
+            this.changed = new AtomicBoolean(!keysMatch || passSnapshot.size() != files.length);
+        }
+
+        void finish() {
+            openPass.compareAndSet(this, null);
+            if (!finished.compareAndSet(false, true) || !changed.get()) {
+                return;
+            }
+            final List<JsonStoreSnapshot.Entry> toWrite = new ArrayList<>(entries.values());
+            if (keysMatch && toWrite.size() < files.length) {
+                // Files this pass never reached keep their old entries, which are checked again on the next pass.
+                for (final File file : files) {
+                    if (!entries.containsKey(file.getName())) {
+                        final JsonStoreSnapshot.Entry old = passSnapshot.entryNamed(file.getName());
+                        if (old != null) {
+                            toWrite.add(old);
+                        }
+                    }
                 }
+            }
+            try {
+                passSnapshot.write(indexNames, toWrite);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Could not write snapshot {}: {}", passSnapshot.getSnapshotPath(), e.getMessage());
+            }
+        }
+
+        private M hydrate(@NonNull final JsonStoreSnapshot.Entry cached, @NonNull final File file) {
+            try {
+                return getJsonMapper().readValue(new ByteBufferBackedInputStream(cached.payload().duplicate()), modelType);
+            } catch (IOException e) {
+                log.debug("Snapshot entry for {} is unreadable: {}", file, e.getMessage());
+            }
+            return loadFromFile(file);
+        }
+
+        LazyModel<M> load(@NonNull final File file) {
+            final LazyModel<M> loaded = loadAndRemember(file);
+            if (remaining.decrementAndGet() == 0) {
+                finish();
+            }
+            return loaded;
+        }
+
+        private LazyModel<M> loadAndRemember(@NonNull final File file) {
+            final BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            } catch (IOException e) {
+                log.debug("Could not stat {}: {}", file, e.getMessage());
+                changed.set(true);
+                return null;
+            }
+            if (!attributes.isRegularFile()) {
                 return null;
             }
-            return Pair.build(model, file);
-        }).filter(Objects::nonNull);
+            final JsonStoreSnapshot.Entry cached = passSnapshot.entryFor(file.getName(), attributes);
+            if (cached != null && keysMatch) {
+                entries.put(file.getName(), cached);
+                return LazyModel.deferred(file, () -> hydrate(cached, file), cached.keys());
+            }
+            if (cached != null) {
+                final M model = hydrate(cached, file);
+                if (model != null) {
+                    final JsonStoreSnapshot.Entry rekeyed = cached.withKeys(snapshotIndexKeys(model));
+                    entries.put(file.getName(), rekeyed);
+                    return LazyModel.of(file, model, rekeyed.keys());
+                }
+            }
+            changed.set(true);
+            final Pair<M, File> pair = loadPairOrDelete(file);
+            if (pair == null) {
+                return null;
+            }
+            final M model = pair.getLeft();
+            final List<List<String>> keys = snapshotIndexKeys(model);
+            try {
+                entries.put(file.getName(), JsonStoreSnapshot.Entry.of(file.getName(), attributes, getJsonMapper().writeValueAsBytes(model), keys));
+            } catch (IOException e) {
+                log.debug("Could not snapshot {}: {}", file, e.getMessage());
+            }
+            return LazyModel.of(file, model, keys);
+        }
     }
 }
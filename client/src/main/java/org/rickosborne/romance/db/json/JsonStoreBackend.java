@@ -0,0 +1,15 @@
+package org.rickosborne.romance.db.json;
+
+/**
+ * How a {@link JsonStoreFactory} keeps models on disk.
+ */
+public enum JsonStoreBackend {
+    /**
+     * One pretty-printed file per model, under a directory per type.
+     */
+    Files,
+    /**
+     * One append-only file of JSON lines per type.  See {@link SegmentJsonStore}.
+     */
+    Segment,
+}
@@ -1,11 +1,14 @@
 package org.rickosborne.romance.db.json;
 
-import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.rickosborne.romance.NamingConvention;
 import org.rickosborne.romance.client.reddit.RedditPostStore;
 import org.rickosborne.romance.db.DbModel;
 import org.rickosborne.romance.db.model.AuthorModel;
+import org.rickosborne.romance.db.model.BookAttributes;
 import org.rickosborne.romance.db.model.BookModel;
 import org.rickosborne.romance.db.model.ModelSchema;
 import org.rickosborne.romance.db.model.ModelSchemas;
@@ -15,12 +18,32 @@ import org.rickosborne.romance.db.model.SeriesModel;
 import org.rickosborne.romance.db.model.TagModel;
 import org.rickosborne.romance.db.model.WatchModel;
 
+import java.io.Closeable;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@RequiredArgsConstructor
+public class JsonStoreFactory implements Closeable {
+    public static final int DEFAULT_LOAD_PARALLELISM = Runtime.getRuntime().availableProcessors();
+    /**
+     * How often write-behind buffers are checked for batches older than their max delay.
+     */
+    public static final Duration FLUSH_CHECK_INTERVAL = Duration.ofSeconds(1);
+    public static final String INDEX_AUTHOR = "author";
+    public static final String INDEX_GOODREADS_URL = "goodreadsUrl";
+    public static final String INDEX_HASH_KEY = "hashKey";
+    public static final String INDEX_ISBN = "isbn";
+    public static final String INDEX_SKU = "sku";
 
-@AllArgsConstructor
-public class JsonStoreFactory {
     protected static <M> JsonStore<M> buildStore(
         final NamingConvention namingConvention,
         final Path dbPath,
@@ -31,15 +54,65 @@ public class JsonStoreFactory {
         return new JsonStore<>(dbModel, modelSchema, modelType, namingConvention, dbPath.resolve(dbModel.getTypeName()));
     }
 
+    protected static <M> IndexedJsonStore<M> buildIndexedStore(
+        final NamingConvention namingConvention,
+        final Path dbPath,
+        final DbModel dbModel,
+        final List<JsonStoreIndex<M>> indexes
+    ) {
+        final Class<M> modelType = dbModel.getModelType();
+        final ModelSchema<M> modelSchema = ModelSchemas.schemaForModelType(modelType);
+        return new IndexedJsonStore<>(dbModel, modelSchema, modelType, namingConvention, dbPath.resolve(dbModel.getTypeName()), indexes);
+    }
+
+    protected static <M> SegmentJsonStore<M> buildSegmentStore(
+        final NamingConvention namingConvention,
+        final Path dbPath,
+        final DbModel dbModel
+    ) {
+        final Class<M> modelType = dbModel.getModelType();
+        final ModelSchema<M> modelSchema = ModelSchemas.schemaForModelType(modelType);
+        final Path segmentPath = dbPath.resolve(dbModel.getTypeName() + SegmentJsonStore.SEGMENT_EXT);
+        return new SegmentJsonStore<>(dbModel, modelSchema, modelType, namingConvention, dbPath.resolve(dbModel.getTypeName()), segmentPath);
+    }
+
+    @Getter
+    private JsonStoreBackend backend = JsonStoreBackend.Files;
     private final Path dbPath;
+    private boolean indexed = false;
+    private int loadParallelism = DEFAULT_LOAD_PARALLELISM;
     private final NamingConvention namingConvention;
+    private Path snapshotPath;
     private final Map<Class<?>, JsonStore<?>> stores = new HashMap<>();
+    private boolean writeBehind = false;
+    private final List<WriteBehindBuffer> writeBehindBuffers = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService writeBehindFlusher;
+
+    public JsonStoreFactory(
+        final Path dbPath,
+        final NamingConvention namingConvention,
+        final boolean indexed
+    ) {
+        this(dbPath, namingConvention);
+        this.indexed = indexed;
+    }
 
+    /**
+     * The factory's store for the model type, built and configured on first use.
+     * Later calls return the same store untouched, so saves it is holding back are kept.
+     */
     public <M, S extends JsonStore<M>> S buildJsonStore(@NonNull final Class<M> modelType) {
         @SuppressWarnings("unchecked") final S store = (S) stores.computeIfAbsent(modelType, m -> {
             for (final StoreModel storeModel : StoreModel.values()) {
                 if (m == storeModel.getModelType()) {
-                    return storeModel.<M, S>buildStore(namingConvention, dbPath);
+                    final S built = storeModel.<M, S>buildStore(namingConvention, dbPath, indexed, backend);
+                    built.setLoadParallelism(loadParallelism);
+                    built.setSnapshot(buildSnapshot(built));
+                    built.setWriteBehind(buildWriteBehind());
+                    if (built instanceof SegmentJsonStore<?> segmentStore) {
+                        segmentStore.open();
+                    }
+                    return built;
                 }
             }
             throw new IllegalArgumentException("No JsonStore for type: " + m.getSimpleName());
@@ -47,9 +120,129 @@ public class JsonStoreFactory {
         return store;
     }
 
+    private WriteBehindBuffer buildWriteBehind() {
+        if (!writeBehind || backend != JsonStoreBackend.Files) {
+            return null;
+        }
+        final WriteBehindBuffer buffer = new WriteBehindBuffer();
+        writeBehindBuffers.add(buffer);
+        startWriteBehindFlusher();
+        return buffer;
+    }
+
+    private void flushDueBuffers() {
+        for (final WriteBehindBuffer buffer : writeBehindBuffers) {
+            try {
+                buffer.flushIfDue();
+            } catch (RuntimeException e) {
+                // Keep the schedule alive; the batch stays pending and is tried again.
+                log.warn("Could not flush write-behind saves: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * One daemon thread per factory, so batches which stop receiving saves still go out after their max delay.
+     */
+    private synchronized void startWriteBehindFlusher() {
+        if (writeBehindFlusher != null) {
+            return;
+        }
+        writeBehindFlusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "json-store-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long interval = FLUSH_CHECK_INTERVAL.toMillis();
+        writeBehindFlusher.scheduleWithFixedDelay(this::flushDueBuffers, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private JsonStoreSnapshot buildSnapshot(@NonNull final JsonStore<?> store) {
+        if (snapshotPath == null || backend != JsonStoreBackend.Files) {
+            return null;
+        }
+        return new JsonStoreSnapshot(snapshotPath.resolve(store.getDbModel().getTypeName() + ".snapshot"));
+    }
+
+    /**
+     * Flush every store and stop the scheduled write-behind flushes.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (writeBehindFlusher != null) {
+                writeBehindFlusher.shutdown();
+                writeBehindFlusher = null;
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Write out any saves held back by write-behind stores.
+     */
+    public void flush() {
+        stores.values().forEach(JsonStore::flush);
+    }
+
+    /**
+     * Must be chosen before the first store is built.  Indexing only applies to {@link JsonStoreBackend#Files}.
+     */
+    public void setBackend(@NonNull final JsonStoreBackend backend) {
+        if (!stores.isEmpty() && backend != this.backend) {
+            throw new IllegalStateException("Cannot change backend after building stores: " + stores.keySet());
+        }
+        this.backend = backend;
+    }
+
+    /**
+     * Applies to stores already built by this factory as well as future ones.
+     */
+    public void setLoadParallelism(final int loadParallelism) {
+        this.loadParallelism = loadParallelism;
+        stores.values().forEach(store -> store.setLoadParallelism(loadParallelism));
+    }
+
+    /**
+     * Batch saves in a {@link WriteBehindBuffer} per store, for the {@link JsonStoreBackend#Files} backend.
+     * Must be chosen before the first store is built.  Pending saves are also flushed at shutdown,
+     * but callers should {@link #close()} the factory when they are done.
+     */
+    public void setWriteBehind(final boolean writeBehind) {
+        if (!stores.isEmpty() && writeBehind != this.writeBehind) {
+            throw new IllegalStateException("Cannot change write-behind after building stores: " + stores.keySet());
+        }
+        if (writeBehind && !this.writeBehind) {
+            Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "json-store-flush"));
+        }
+        this.writeBehind = writeBehind;
+    }
+
+    /**
+     * Keep a {@link JsonStoreSnapshot} per model type under this directory, or none if null.
+     * Applies to stores already built by this factory as well as future ones.
+     */
+    public void setSnapshotPath(final Path snapshotPath) {
+        this.snapshotPath = snapshotPath;
+        stores.values().forEach(store -> store.setSnapshot(buildSnapshot(store)));
+    }
+
     public enum StoreModel {
         Author(AuthorModel.class, DbModel.Author),
-        Book(BookModel.class, DbModel.Book),
+        Book(BookModel.class, DbModel.Book) {
+            @Override
+            <M> List<JsonStoreIndex<M>> buildIndexes() {
+                final List<JsonStoreIndex<BookModel>> indexes = List.of(
+                    JsonStoreIndex.single(INDEX_HASH_KEY, BookModel::hashKeyForBook),
+                    new JsonStoreIndex<>(INDEX_AUTHOR, b -> b.streamAuthors().map(String::toLowerCase)),
+                    JsonStoreIndex.forAttribute(INDEX_SKU, BookAttributes.audiobookStoreSku),
+                    JsonStoreIndex.forAttribute(INDEX_GOODREADS_URL, BookAttributes.goodreadsUrl),
+                    JsonStoreIndex.forAttribute(INDEX_ISBN, BookAttributes.isbn)
+                );
+                @SuppressWarnings("unchecked") final List<JsonStoreIndex<M>> typed = (List<JsonStoreIndex<M>>) (List<?>) indexes;
+                return typed;
+            }
+        },
         Narrator(NarratorModel.class, DbModel.Narrator),
         Series(SeriesModel.class, DbModel.Series),
         Tag(TagModel.class, DbModel.Tag),
@@ -58,7 +251,9 @@ public class JsonStoreFactory {
             @Override
             <M, S extends JsonStore<M>> S buildStore(
                 final NamingConvention namingConvention,
-                final Path typePath
+                final Path typePath,
+                final boolean indexed,
+                final JsonStoreBackend backend
             ) {
                 @SuppressWarnings("unchecked") final S typed = (S) new RedditPostStore(RedditPostStore.RedditPostType.Submission, namingConvention, typePath);
                 return typed;
@@ -79,12 +274,24 @@ public class JsonStoreFactory {
         @SuppressWarnings("unchecked")
         <M, S extends JsonStore<M>> S buildStore(
             final NamingConvention namingConvention,
-            final Path typePath
+            final Path typePath,
+            final boolean indexed,
+            final JsonStoreBackend backend
         ) {
+            if (backend == JsonStoreBackend.Segment) {
+                return (S) JsonStoreFactory.<M>buildSegmentStore(namingConvention, typePath, dbModel);
+            }
+            if (indexed) {
+                return (S) JsonStoreFactory.<M>buildIndexedStore(namingConvention, typePath, dbModel, buildIndexes());
+            }
             return (S) JsonStoreFactory.buildStore(namingConvention, typePath, dbModel);
         }
 
-        <M> Class<M> getModelType() {
+        <M> List<JsonStoreIndex<M>> buildIndexes() {
+            return Collections.emptyList();
+        }
+
+        public <M> Class<M> getModelType() {
             @SuppressWarnings("unchecked") final Class<M> typed = (Class<M>) modelType;
             return typed;
         }
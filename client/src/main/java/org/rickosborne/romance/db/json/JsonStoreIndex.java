@@ -0,0 +1,109 @@
+package org.rickosborne.romance.db.json;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.rickosborne.romance.db.model.SchemaAttribute;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A secondary index over the models in an {@link IndexedJsonStore}, mapping
+ * each key produced by {@link #keysFromModel} to the ids of the models which produced it.
+ */
+public class JsonStoreIndex<M> {
+    /**
+     * Indexes the attribute's value, so {@link IndexedJsonStore#stream(AttributeQuery)} can use it for equality.
+     */
+    public static <M> JsonStoreIndex<M> forAttribute(
+        @NonNull final String indexName,
+        @NonNull final SchemaAttribute<M, ?> attribute
+    ) {
+        return new JsonStoreIndex<>(indexName, m -> Stream.of(attribute.getAttribute(m)), attribute);
+    }
+
+    public static <M> JsonStoreIndex<M> single(
+        @NonNull final String indexName,
+        @NonNull final Function<M, ?> keyFromModel
+    ) {
+        return new JsonStoreIndex<>(indexName, m -> Stream.of(keyFromModel.apply(m)));
+    }
+
+    /**
+     * The attribute whose value is the key, or null if the keys are derived some other way.
+     */
+    @Getter
+    private final SchemaAttribute<M, ?> attribute;
+    private final Map<String, Set<String>> idsByKey = new ConcurrentHashMap<>();
+    @Getter
+    private final String indexName;
+    private final Function<M, Stream<?>> keysFromModel;
+
+    public JsonStoreIndex(
+        @NonNull final String indexName,
+        @NonNull final Function<M, Stream<?>> keysFromModel
+    ) {
+        this(indexName, keysFromModel, null);
+    }
+
+    private JsonStoreIndex(
+        final String indexName,
+        final Function<M, Stream<?>> keysFromModel,
+        final SchemaAttribute<M, ?> attribute
+    ) {
+        this.indexName = indexName;
+        this.keysFromModel = keysFromModel;
+        this.attribute = attribute;
+    }
+
+    void add(@NonNull final String id, @NonNull final M model) {
+        addKeys(id, keysFor(model).collect(Collectors.toList()));
+    }
+
+    /**
+     * Keys which {@link #keysFor} produced earlier, such as from a {@link JsonStoreSnapshot}.
+     */
+    void addKeys(@NonNull final String id, @NonNull final Collection<String> keys) {
+        keys.forEach(key -> idsByKey.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(id));
+    }
+
+    public Set<String> idsForKey(final String key) {
+        if (key == null) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(idsByKey.getOrDefault(key, Collections.emptySet()));
+    }
+
+    public Stream<String> keysFor(final M model) {
+        if (model == null) {
+            return Stream.empty();
+        }
+        final Stream<?> keys = keysFromModel.apply(model);
+        if (keys == null) {
+            return Stream.empty();
+        }
+        return keys
+            .filter(Objects::nonNull)
+            .map(Object::toString)
+            .filter(key -> !key.isBlank())
+            .distinct();
+    }
+
+    void remove(@NonNull final String id, @NonNull final M model) {
+        keysFor(model).forEach(key -> idsByKey.computeIfPresent(key, (k, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        }));
+    }
+
+    public int size() {
+        return idsByKey.size();
+    }
+}
@@ -0,0 +1,199 @@
+package org.rickosborne.romance.db.json;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A memory-mapped binary copy of every model file in a {@link JsonStore} directory, along with
+ * the keys its indexes produced, so a cold start only has to stat each file instead of reading it.
+ * Each entry remembers the size and modification time of the file it came from.  A file which
+ * no longer matches is parsed again, and the store rewrites the snapshot once a pass over the
+ * directory ends.  Payloads of unchanged files are only parsed when their model is first used.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class JsonStoreSnapshot {
+    private static final int MAGIC = 0x524e5350;
+    private static final int VERSION = 1;
+
+    private static String readString(final ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(final DataOutputStream out, final String s) throws IOException {
+        final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private Map<String, Entry> entries;
+    private List<String> indexNames;
+    @Getter
+    private final Path snapshotPath;
+
+    /**
+     * The entry for the file, if it has not changed since the snapshot was written.
+     */
+    public Entry entryFor(@NonNull final String fileName, @NonNull final BasicFileAttributes attributes) {
+        final Entry entry = getEntries().get(fileName);
+        if (entry != null && attributes.size() == entry.size() && attributes.lastModifiedTime().toMillis() == entry.modified()) {
+            return entry;
+        }
+        return null;
+    }
+
+    /**
+     * The entry recorded for the file name, without checking whether the file still matches it.
+     */
+    public Entry entryNamed(@NonNull final String fileName) {
+        return getEntries().get(fileName);
+    }
+
+    private synchronized Map<String, Entry> getEntries() {
+        if (entries == null) {
+            entries = Collections.emptyMap();
+            indexNames = Collections.emptyList();
+            if (Files.isRegularFile(snapshotPath)) {
+                try {
+                    read();
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Ignoring unreadable snapshot {}: {}", snapshotPath, e.getMessage());
+                    entries = Collections.emptyMap();
+                    indexNames = Collections.emptyList();
+                }
+            }
+        }
+        return entries;
+    }
+
+    public synchronized List<String> getIndexNames() {
+        getEntries();
+        return indexNames;
+    }
+
+    private void read() throws IOException {
+        final MappedByteBuffer buffer;
+        try (final FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IllegalArgumentException("Not a snapshot");
+        }
+        final int indexCount = buffer.getInt();
+        final List<String> names = new ArrayList<>(indexCount);
+        for (int i = 0; i < indexCount; i++) {
+            names.add(readString(buffer));
+        }
+        final int entryCount = buffer.getInt();
+        final Map<String, Entry> read = new HashMap<>(entryCount * 2);
+        for (int e = 0; e < entryCount; e++) {
+            final String fileName = readString(buffer);
+            final long size = buffer.getLong();
+            final long modified = buffer.getLong();
+            final List<List<String>> keys = new ArrayList<>(indexCount);
+            for (int i = 0; i < indexCount; i++) {
+                final int keyCount = buffer.getInt();
+                final List<String> indexKeys = new ArrayList<>(keyCount);
+                for (int k = 0; k < keyCount; k++) {
+                    indexKeys.add(readString(buffer));
+                }
+                keys.add(indexKeys);
+            }
+            final int payloadLength = buffer.getInt();
+            final ByteBuffer payload = buffer.slice(buffer.position(), payloadLength);
+            buffer.position(buffer.position() + payloadLength);
+            read.put(fileName, new Entry(fileName, size, modified, payload, keys));
+        }
+        entries = read;
+        indexNames = names;
+    }
+
+    public int size() {
+        return getEntries().size();
+    }
+
+    /**
+     * Replace the snapshot on disk.  Entries are dropped from memory and mapped again on next use.
+     */
+    public synchronized void write(
+        @NonNull final List<String> indexNames,
+        @NonNull final Collection<Entry> entries
+    ) throws IOException {
+        final Path parent = snapshotPath.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        final Path tempPath = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(indexNames.size());
+            for (final String indexName : indexNames) {
+                writeString(out, indexName);
+            }
+            out.writeInt(entries.size());
+            for (final Entry entry : entries) {
+                writeString(out, entry.fileName());
+                out.writeLong(entry.size());
+                out.writeLong(entry.modified());
+                for (int i = 0; i < indexNames.size(); i++) {
+                    final List<String> keys = i < entry.keys().size() ? entry.keys().get(i) : Collections.emptyList();
+                    out.writeInt(keys.size());
+                    for (final String key : keys) {
+                        writeString(out, key);
+                    }
+                }
+                final ByteBuffer payload = entry.payload();
+                final byte[] bytes = new byte[payload.remaining()];
+                payload.get(payload.position(), bytes);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+        Files.move(tempPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        this.entries = null;
+        this.indexNames = null;
+        log.debug("Wrote {} entries to {}", entries.size(), snapshotPath);
+    }
+
+    /**
+     * @param payload the model as JSON, which is only ever read through {@link ByteBuffer#duplicate()}
+     */
+    public record Entry(String fileName, long size, long modified, ByteBuffer payload, List<List<String>> keys) {
+        public static Entry of(
+            @NonNull final String fileName,
+            @NonNull final BasicFileAttributes attributes,
+            @NonNull final byte[] payload,
+            @NonNull final List<List<String>> keys
+        ) {
+            return new Entry(fileName, attributes.size(), attributes.lastModifiedTime().toMillis(), ByteBuffer.wrap(payload), keys);
+        }
+
+        public Entry withKeys(@NonNull final List<List<String>> keys) {
+            return new Entry(fileName, size, modified, payload, keys);
+        }
+    }
+}
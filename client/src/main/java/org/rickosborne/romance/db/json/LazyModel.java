@@ -0,0 +1,47 @@
+package org.rickosborne.romance.db.json;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.io.File;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * A model from one pass over a {@link JsonStore} directory, along with its index keys.
+ * Models taken from a {@link JsonStoreSnapshot} are only parsed the first time they are asked for.
+ */
+final class LazyModel<M> {
+    static <M> LazyModel<M> of(final File file, @NonNull final M model, final List<List<String>> keys) {
+        return new LazyModel<>(file, model, null, keys);
+    }
+
+    static <M> LazyModel<M> deferred(final File file, @NonNull final Supplier<M> loader, final List<List<String>> keys) {
+        return new LazyModel<>(file, null, loader, keys);
+    }
+
+    @Getter
+    private final File file;
+    /**
+     * Keys for each of the store's snapshot indexes, in order, or null if they have to be computed from the model.
+     */
+    @Getter
+    private final List<List<String>> keys;
+    private Supplier<M> loader;
+    private M model;
+
+    private LazyModel(final File file, final M model, final Supplier<M> loader, final List<List<String>> keys) {
+        this.file = file;
+        this.model = model;
+        this.loader = loader;
+        this.keys = keys;
+    }
+
+    synchronized M get() {
+        if (loader != null) {
+            model = loader.get();
+            loader = null;
+        }
+        return model;
+    }
+}
@@ -0,0 +1,111 @@
+package org.rickosborne.romance.db.json;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Runs a load function over files on virtual threads, with at most {@code parallelism} loads
+ * in flight at once, handing results back either in file order or in the order they finish.
+ * Loads only run a window ahead of the consumer, so short-circuiting streams stay cheap.
+ */
+class ParallelFileLoader<T> implements Iterator<T>, AutoCloseable {
+    static <T> Stream<T> stream(
+        final File[] files,
+        final int parallelism,
+        final boolean ordered,
+        final Function<File, T> load
+    ) {
+        final ParallelFileLoader<T> loader = new ParallelFileLoader<>(files, parallelism, ordered, load);
+        final int characteristics = ordered ? Spliterator.ORDERED : 0;
+        return StreamSupport.stream(Spliterators.spliterator(loader, files.length, characteristics), false)
+            .onClose(loader::close);
+    }
+
+    private final ExecutorCompletionService<T> completion;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final File[] files;
+    private final Function<File, T> load;
+    private int nextFile = 0;
+    private final boolean ordered;
+    private int outstanding = 0;
+    private final int parallelism;
+    private final Deque<Future<T>> pending = new ArrayDeque<>();
+
+    private ParallelFileLoader(
+        final File[] files,
+        final int parallelism,
+        final boolean ordered,
+        final Function<File, T> load
+    ) {
+        this.files = files;
+        this.parallelism = Math.max(1, parallelism);
+        this.ordered = ordered;
+        this.load = load;
+        this.completion = new ExecutorCompletionService<>(executor);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void fill() {
+        while (outstanding < parallelism && nextFile < files.length && !executor.isShutdown()) {
+            final File file = files[nextFile++];
+            if (ordered) {
+                pending.add(executor.submit(() -> load.apply(file)));
+            } else {
+                completion.submit(() -> load.apply(file));
+            }
+            outstanding++;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        fill();
+        final boolean more = outstanding > 0;
+        if (!more) {
+            close();
+        }
+        return more;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            final Future<T> future = ordered ? pending.remove() : completion.take();
+            outstanding--;
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new IllegalStateException("Interrupted while loading files", e);
+        } catch (ExecutionException e) {
+            close();
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            } else if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException("Could not load file", cause);
+        }
+    }
+}
@@ -0,0 +1,551 @@
+package org.rickosborne.romance.db.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.rickosborne.romance.NamingConvention;
+import org.rickosborne.romance.db.DbJsonWriter;
+import org.rickosborne.romance.db.DbModel;
+import org.rickosborne.romance.db.model.ModelSchema;
+import org.rickosborne.romance.util.Pair;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A {@link JsonStore} which keeps every model of its type in one append-only segment file of
+ * newline-delimited JSON records, instead of one pretty-printed file per model.
+ * Saving appends a record, and an in-memory map from id to record offset finds the latest one.
+ * Superseded records are dropped by {@link #compact()}, which runs in the background once they
+ * outnumber the live ones.  The first {@link #open} imports an existing one-file-per-model
+ * directory, and later ones import any of its files changed since the segment was last written,
+ * so edits made to the files aren't lost.  {@link #exportToFiles()} writes that layout back out for diffing.
+ */
+@Slf4j
+public class SegmentJsonStore<M> extends JsonStore<M> {
+    public static final int COMPACT_MIN_DEAD_RECORDS = 256;
+    public static final String SEGMENT_EXT = ".ndjson";
+
+    /**
+     * Held for a whole {@link #compact()}, so two never share the temporary file.
+     */
+    private final Object compactLock = new Object();
+    private final AtomicBoolean compacting = new AtomicBoolean(false);
+    private int deadRecords = 0;
+    /**
+     * Offset of the latest record for each id, or null until the segment has been read.
+     */
+    private Map<String, Long> offsets;
+    private final JavaType recordType;
+    private final ObjectWriter recordWriter;
+    private long segmentLength = 0;
+    @Getter
+    private final Path segmentPath;
+
+    /**
+     * Does no I/O, so configure the store and then {@link #open} it, or it opens on first use.
+     */
+    public SegmentJsonStore(
+        @NonNull final DbModel dbModel,
+        @NonNull final ModelSchema<M> modelSchema,
+        @NonNull final Class<M> modelType,
+        @NonNull final NamingConvention namingConvention,
+        @NonNull final Path typePath,
+        @NonNull final Path segmentPath
+    ) {
+        super(dbModel, modelSchema, modelType, namingConvention, typePath);
+        this.segmentPath = segmentPath;
+        this.recordType = DbJsonWriter.getJsonMapper().getTypeFactory().constructParametricType(SegmentRecord.class, modelType);
+        this.recordWriter = DbJsonWriter.getJsonMapper().writerFor(recordType);
+    }
+
+    private synchronized void append(@NonNull final List<SegmentRecord<M>> records) {
+        final Map<String, Long> known = getOffsets();
+        final Map<String, Long> appended = new HashMap<>();
+        long length = segmentLength;
+        try {
+            final Path parent = segmentPath.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            try (final OutputStream out = new BufferedOutputStream(Files.newOutputStream(segmentPath, StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+                for (final SegmentRecord<M> record : records) {
+                    final byte[] bytes = recordWriter.writeValueAsBytes(record);
+                    out.write(bytes);
+                    out.write('\n');
+                    appended.put(record.id(), length);
+                    length += bytes.length + 1;
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not append to " + segmentPath, e);
+        }
+        for (final Map.Entry<String, Long> entry : appended.entrySet()) {
+            if (known.put(entry.getKey(), entry.getValue()) != null) {
+                deadRecords++;
+            }
+        }
+        deadRecords += records.size() - appended.size();
+        segmentLength = length;
+    }
+
+    /**
+     * Rewrite the segment with only the latest record for each id.  The store stays usable while
+     * the live records are copied; it is only locked to note where the copy starts and, at the end,
+     * to copy any records saved meanwhile and swap the compacted file in.
+     */
+    public void compact() {
+        synchronized (compactLock) {
+            final Map<Long, String> liveIds = new HashMap<>();
+            final long copiedLength;
+            synchronized (this) {
+                final Map<String, Long> live = getOffsets();
+                if (deadRecords == 0) {
+                    return;
+                }
+                live.forEach((id, offset) -> liveIds.put(offset, id));
+                copiedLength = segmentLength;
+            }
+            final Path compactPath = segmentPath.resolveSibling(segmentPath.getFileName() + ".compact");
+            final Map<String, Long> compacted = new HashMap<>();
+            long length = 0;
+            try (
+                final SegmentLines lines = openLines(0, copiedLength);
+                final OutputStream out = new BufferedOutputStream(Files.newOutputStream(compactPath))
+            ) {
+                while (lines.hasNext()) {
+                    final SegmentLine line = lines.next();
+                    final String id = liveIds.get(line.offset());
+                    if (id == null) {
+                        continue;
+                    }
+                    out.write(line.bytes());
+                    out.write('\n');
+                    compacted.put(id, length);
+                    length += line.bytes().length + 1;
+                }
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Could not compact " + segmentPath, e);
+            }
+            synchronized (this) {
+                int dead = 0;
+                try (
+                    final SegmentLines lines = openLines(copiedLength, segmentLength);
+                    final OutputStream out = new BufferedOutputStream(Files.newOutputStream(compactPath, StandardOpenOption.APPEND))
+                ) {
+                    while (lines.hasNext()) {
+                        final SegmentLine line = lines.next();
+                        out.write(line.bytes());
+                        out.write('\n');
+                        if (compacted.put(idOf(line.bytes()), length) != null) {
+                            dead++;
+                        }
+                        length += line.bytes().length + 1;
+                    }
+                } catch (IOException e) {
+                    throw new IllegalArgumentException("Could not compact " + segmentPath, e);
+                }
+                try {
+                    Files.move(compactPath, segmentPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException e) {
+                    throw new IllegalArgumentException("Could not replace " + segmentPath, e);
+                }
+                log.info("Compacted {}: {} records, dropped {}", segmentPath, compacted.size(), deadRecords - dead);
+                offsets = compacted;
+                segmentLength = length;
+                deadRecords = dead;
+            }
+        }
+    }
+
+    private void compactInBackgroundIfNeeded() {
+        synchronized (this) {
+            if (deadRecords < COMPACT_MIN_DEAD_RECORDS || deadRecords < getOffsets().size()) {
+                return;
+            }
+        }
+        if (!compacting.compareAndSet(false, true)) {
+            return;
+        }
+        Thread.ofVirtual().name("compact-" + getDbModel().getTypeName()).start(() -> {
+            try {
+                compact();
+            } catch (RuntimeException e) {
+                log.warn("Could not compact {}: {}", segmentPath, e.getMessage());
+            } finally {
+                compacting.set(false);
+            }
+        });
+    }
+
+    /**
+     * Write each model out as its own pretty-printed file, in the {@link JsonStore} layout.
+     */
+    public int exportToFiles() {
+        final int[] count = {0};
+        try (final Stream<M> models = stream()) {
+            models.forEach(model -> {
+                super.save(model);
+                count[0]++;
+            });
+        }
+        flush();
+        // The files match the segment, so the next open shouldn't import them again.
+        synchronized (this) {
+            try {
+                if (Files.isRegularFile(segmentPath)) {
+                    Files.setLastModifiedTime(segmentPath, FileTime.fromMillis(System.currentTimeMillis()));
+                }
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Could not touch " + segmentPath, e);
+            }
+        }
+        return count[0];
+    }
+
+    @Override
+    public M findByIdFromCache(final String id) {
+        if (id == null) {
+            return null;
+        }
+        final byte[] bytes;
+        synchronized (this) {
+            final Long offset = getOffsets().get(keyForId(id));
+            if (offset == null) {
+                return null;
+            }
+            try (final SegmentLines lines = openLines(offset, segmentLength)) {
+                bytes = lines.next().bytes();
+            }
+        }
+        return parseRecord(bytes).model();
+    }
+
+    private synchronized Map<String, Long> getOffsets() {
+        if (offsets == null) {
+            offsets = new HashMap<>();
+            if (Files.isRegularFile(segmentPath)) {
+                readOffsets();
+                importNewerFiles();
+            } else {
+                importFiles();
+            }
+        }
+        return offsets;
+    }
+
+    private String idOf(final byte[] bytes) {
+        try (final JsonParser parser = getJsonMapper().createParser(bytes)) {
+            if (parser.nextToken() == JsonToken.START_OBJECT && "id".equals(parser.nextFieldName())) {
+                final String id = parser.nextTextValue();
+                if (id != null) {
+                    return id;
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not read record in " + segmentPath, e);
+        }
+        return parseRecord(bytes).id();
+    }
+
+    private void importFiles() {
+        final List<SegmentRecord<M>> records;
+        try (final Stream<Pair<M, File>> pairs = super.streamWithFiles(false)) {
+            records = pairs.map(pair -> {
+                final String fileName = pair.getRight().getName();
+                return new SegmentRecord<>(fileName.substring(0, fileName.length() - FILE_EXT.length()), pair.getLeft());
+            }).collect(Collectors.toList());
+        }
+        if (records.isEmpty()) {
+            return;
+        }
+        append(records);
+        log.info("Imported {} {} files into {}", records.size(), getModelType().getSimpleName(), segmentPath);
+    }
+
+    /**
+     * Append the directory's files which changed after the segment was last written, so they
+     * replace the older records for their ids.
+     */
+    private void importNewerFiles() {
+        final long segmentModified = segmentPath.toFile().lastModified();
+        final File[] files = listFiles();
+        if (files == null) {
+            return;
+        }
+        final List<SegmentRecord<M>> records = new ArrayList<>();
+        for (final File file : files) {
+            if (file.lastModified() > segmentModified) {
+                final M model = loadFromFile(file);
+                if (model != null) {
+                    final String fileName = file.getName();
+                    records.add(new SegmentRecord<>(fileName.substring(0, fileName.length() - FILE_EXT.length()), model));
+                }
+            }
+        }
+        if (records.isEmpty()) {
+            return;
+        }
+        append(records);
+        log.info("Imported {} changed {} files into {}", records.size(), getModelType().getSimpleName(), segmentPath);
+    }
+
+    @Override
+    public Iterator<M> iterator() {
+        return stream().iterator();
+    }
+
+    private String keyForId(@NonNull final String id) {
+        return getNamingConvention().fileNameFromTexts(id);
+    }
+
+    /**
+     * Read the segment, importing any newer directory files, or import the whole directory into a new one.
+     */
+    public SegmentJsonStore<M> open() {
+        getOffsets();
+        return this;
+    }
+
+    private SegmentLines openLines(final long start, final long limit) {
+        try {
+            final FileChannel channel = FileChannel.open(segmentPath, StandardOpenOption.READ);
+            channel.position(start);
+            return new SegmentLines(Channels.newInputStream(channel), start, limit);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not read " + segmentPath, e);
+        }
+    }
+
+    private SegmentRecord<M> parseRecord(final byte[] bytes) {
+        try {
+            return getJsonMapper().readValue(bytes, recordType);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not load " + getModelType().getSimpleName() + " record in " + segmentPath, e);
+        }
+    }
+
+    private void readOffsets() {
+        long length = 0;
+        try {
+            try (final SegmentLines lines = openLines(0, Files.size(segmentPath))) {
+                while (lines.hasNext()) {
+                    final SegmentLine line = lines.next();
+                    if (!line.terminated()) {
+                        // A save was interrupted part way through its record.
+                        log.warn("Dropping incomplete record at {} in {}", line.offset(), segmentPath);
+                        break;
+                    }
+                    if (offsets.put(idOf(line.bytes()), line.offset()) != null) {
+                        deadRecords++;
+                    }
+                    length = line.offset() + line.bytes().length + 1;
+                }
+            }
+            if (length < Files.size(segmentPath)) {
+                try (final FileChannel channel = FileChannel.open(segmentPath, StandardOpenOption.WRITE)) {
+                    channel.truncate(length);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not read " + segmentPath, e);
+        }
+        segmentLength = length;
+    }
+
+    @Override
+    public M save(final M model) {
+        final String id = idFromModel(model);
+        if (id == null) {
+            throw new NullPointerException("Cannot save incomplete " + getModelType().getSimpleName() + ": " + model);
+        }
+        append(List.of(new SegmentRecord<>(keyForId(id), model)));
+        compactInBackgroundIfNeeded();
+        return model;
+    }
+
+    /**
+     * How many models the segment holds, reading or importing it if needed.
+     */
+    public synchronized int size() {
+        return getOffsets().size();
+    }
+
+    /**
+     * One sequential read of the segment, skipping superseded records.
+     */
+    @Override
+    protected Stream<Pair<M, File>> streamWithFiles(final boolean ordered) {
+        final Set<Long> liveOffsets;
+        final SegmentLines lines;
+        synchronized (this) {
+            liveOffsets = new HashSet<>(getOffsets().values());
+            if (liveOffsets.isEmpty()) {
+                return Stream.empty();
+            }
+            // Compaction replaces the file rather than rewriting it, so this stays a consistent snapshot.
+            lines = openLines(0, segmentLength);
+        }
+        final Iterator<Pair<M, File>> models = new Iterator<>() {
+            private Pair<M, File> next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && lines.hasNext()) {
+                    final SegmentLine line = lines.next();
+                    if (liveOffsets.contains(line.offset())) {
+                        final SegmentRecord<M> record = parseRecord(line.bytes());
+                        if (record.model() != null) {
+                            next = Pair.build(record.model(), fileForId(record.id()));
+                        }
+                    }
+                }
+                if (next == null) {
+                    lines.close();
+                }
+                return next != null;
+            }
+
+            @Override
+            public Pair<M, File> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final Pair<M, File> pair = next;
+                next = null;
+                return pair;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliterator(models, liveOffsets.size(), Spliterator.ORDERED | Spliterator.NONNULL), false)
+            .onClose(lines::close);
+    }
+
+    private record SegmentLine(long offset, byte[] bytes, boolean terminated) {
+    }
+
+    record SegmentRecord<T>(String id, T model) {
+    }
+
+    /**
+     * Reads newline-terminated records from {@code start} up to {@code limit}.
+     */
+    private static class SegmentLines implements Iterator<SegmentLine>, Closeable {
+        private final byte[] buffer = new byte[64 * 1024];
+        private int bufferEnd = 0;
+        private int bufferStart = 0;
+        private final InputStream in;
+        private final long limit;
+        private SegmentLine nextLine;
+        /**
+         * File offset of {@code buffer[bufferStart]}.
+         */
+        private long position;
+        private long readPosition;
+
+        SegmentLines(final InputStream in, final long start, final long limit) {
+            this.in = in;
+            this.limit = limit;
+            this.position = start;
+            this.readPosition = start;
+        }
+
+        @Override
+        public void close() {
+            try {
+                in.close();
+            } catch (IOException e) {
+                log.warn("Could not close segment: {}", e.getMessage());
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (nextLine == null) {
+                try {
+                    nextLine = readLine();
+                } catch (IOException e) {
+                    throw new IllegalArgumentException("Could not read segment", e);
+                }
+            }
+            return nextLine != null;
+        }
+
+        @Override
+        public SegmentLine next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final SegmentLine line = nextLine;
+            nextLine = null;
+            return line;
+        }
+
+        private SegmentLine readLine() throws IOException {
+            final long offset = position;
+            ByteArrayOutputStream partial = null;
+            while (true) {
+                for (int i = bufferStart; i < bufferEnd; i++) {
+                    if (buffer[i] == '\n') {
+                        final byte[] bytes;
+                        if (partial == null) {
+                            bytes = new byte[i - bufferStart];
+                            System.arraycopy(buffer, bufferStart, bytes, 0, bytes.length);
+                        } else {
+                            partial.write(buffer, bufferStart, i - bufferStart);
+                            bytes = partial.toByteArray();
+                        }
+                        position += i - bufferStart + 1;
+                        bufferStart = i + 1;
+                        return new SegmentLine(offset, bytes, true);
+                    }
+                }
+                if (bufferEnd > bufferStart) {
+                    if (partial == null) {
+                        partial = new ByteArrayOutputStream();
+                    }
+                    partial.write(buffer, bufferStart, bufferEnd - bufferStart);
+                    position += bufferEnd - bufferStart;
+                }
+                bufferStart = 0;
+                bufferEnd = 0;
+                final long remaining = limit - readPosition;
+                final int read = remaining <= 0 ? -1 : in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    return partial == null ? null : new SegmentLine(offset, partial.toByteArray(), false);
+                }
+                readPosition += read;
+                bufferEnd = read;
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package org.rickosborne.romance.db.json;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds serialized saves for a {@link JsonStore} until a batch is flushed.
+ * Repeated saves of one file keep only the latest bytes, and bytes identical to what
+ * was last read or written are never written at all.  A flush writes every pending
+ * file to a temporary sibling first, then renames each into place.  Each file is replaced
+ * atomically, but the batch is not: a crash part way through the renames leaves some files
+ * with their new contents and the rest with their old ones.  A batch which is older than
+ * {@link #maxDelay} is flushed by the next save or by {@link #flushIfDue()}, which
+ * {@link JsonStoreFactory} calls on a schedule.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class WriteBehindBuffer {
+    public static final Duration DEFAULT_MAX_DELAY = Duration.ofSeconds(30);
+    public static final int DEFAULT_MAX_PENDING = 250;
+
+    private static byte[] fingerprint(@NonNull final byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("No SHA-256", e);
+        }
+    }
+
+    @Getter
+    private final Duration maxDelay;
+    @Getter
+    private final int maxPending;
+    private Instant oldestPending;
+    private final Map<File, byte[]> pending = new LinkedHashMap<>();
+    /**
+     * Fingerprints of the bytes last read from or written to each file.
+     */
+    private final Map<File, byte[]> persisted = new HashMap<>();
+
+    public WriteBehindBuffer() {
+        this(DEFAULT_MAX_DELAY, DEFAULT_MAX_PENDING);
+    }
+
+    /**
+     * Write every pending file.
+     */
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        final List<Path> temps = new ArrayList<>(pending.size());
+        try {
+            for (final Map.Entry<File, byte[]> entry : pending.entrySet()) {
+                final Path target = entry.getKey().toPath();
+                final Path parent = target.toAbsolutePath().getParent();
+                if (parent != null) {
+                    Files.createDirectories(parent);
+                }
+                final Path temp = target.resolveSibling("." + target.getFileName() + ".tmp");
+                Files.write(temp, entry.getValue());
+                temps.add(temp);
+            }
+            int at = 0;
+            for (final Map.Entry<File, byte[]> entry : pending.entrySet()) {
+                Files.move(temps.get(at++), entry.getKey().toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                persisted.put(entry.getKey(), fingerprint(entry.getValue()));
+            }
+        } catch (IOException e) {
+            for (final Path temp : temps) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // Best effort; the original error matters more.
+                }
+            }
+            throw new IllegalArgumentException("Could not flush " + pending.size() + " pending saves", e);
+        }
+        log.debug("Flushed {} saves", pending.size());
+        pending.clear();
+        oldestPending = null;
+    }
+
+    /**
+     * Flush if the oldest pending save has waited at least {@link #maxDelay}.
+     */
+    public synchronized void flushIfDue() {
+        if (oldestPending != null && Duration.between(oldestPending, Instant.now()).compareTo(maxDelay) >= 0) {
+            flush();
+        }
+    }
+
+    /**
+     * Whether these bytes match what is pending for, or was last persisted to, the file.
+     */
+    public synchronized boolean isCurrent(@NonNull final File file, @NonNull final byte[] bytes) {
+        final byte[] waiting = pending.get(file);
+        if (waiting != null) {
+            return Arrays.equals(waiting, bytes);
+        }
+        final byte[] known = persisted.get(file);
+        return known != null && Arrays.equals(known, fingerprint(bytes));
+    }
+
+    public synchronized byte[] pendingFor(@NonNull final File file) {
+        return pending.get(file);
+    }
+
+    public synchronized void remember(@NonNull final File file, @NonNull final byte[] bytes) {
+        persisted.put(file, fingerprint(bytes));
+    }
+
+    /**
+     * Queue the bytes for the file, flushing if the batch has grown too large or too old.
+     */
+    public synchronized void stage(@NonNull final File file, @NonNull final byte[] bytes) {
+        final byte[] known = persisted.get(file);
+        if (known != null && Arrays.equals(known, fingerprint(bytes))) {
+            // Back to what is on disk, so any pending change is moot.
+            pending.remove(file);
+            return;
+        }
+        pending.put(file, bytes);
+        final Instant now = Instant.now();
+        if (oldestPending == null) {
+            oldestPending = now;
+        }
+        if (pending.size() >= maxPending || Duration.between(oldestPending, now).compareTo(maxDelay) >= 0) {
+            flush();
+        }
+    }
+}
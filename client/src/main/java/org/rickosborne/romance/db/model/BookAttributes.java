@@ -119,4 +119,9 @@ public enum BookAttributes implements EnumSchemaAttribute<BookModel> {
         mutator.accept(model, afterValue);
     }
 
+    @Override
+    public Object settleAttributeValue(final Object value) {
+        return chooseAttributeValue(null, value);
+    }
+
 }
@@ -5,9 +5,11 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
 import org.rickosborne.romance.db.Importable;
 import org.rickosborne.romance.util.BookRating;
@@ -20,11 +22,13 @@ import java.net.URL;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.rickosborne.romance.util.BookStuff.cleanAuthor;
@@ -59,19 +63,20 @@ public class BookModel {
     }
 
     public static String hashKeyForBook(final BookModel book) {
-        return Optional.ofNullable(cleanAuthor(book.getAuthorName())).map(String::toLowerCase).orElse("") + "\t" +
-            Optional.ofNullable(cleanTitle(book.getTitle())).map(String::toLowerCase).orElse("");
+        return book.hashKeys.hashKey(book);
     }
 
     public static Stream<String> hashKeysForBook(final BookModel book) {
         if (book == null) {
             return Stream.empty();
         }
-        final String title = Optional.ofNullable(cleanTitle(book.getTitle())).map(String::toLowerCase).orElse("");
-        return book.streamAuthors().map(author -> author.concat("\t").concat(title));
+        return book.hashKeys.hashKeys(book).stream();
     }
 
     private Integer audiobookStoreRatings;
+    @Getter(AccessLevel.NONE)
+    @JsonIgnore
+    private final transient HashKeys hashKeys = new HashKeys();
     private String audiobookStoreSku;
     private URL audiobookStoreUrl;
     private URL audiobooksDotComUrl;
@@ -210,6 +215,51 @@ public class BookModel {
             + (title == null ? "<no title>" : title);
     }
 
+    /**
+     * Memoizes {@link #hashKeyForBook} and {@link #hashKeysForBook}.
+     * Each value remembers the author and title it was computed from, so any setter,
+     * builder, or deserializer which replaces either one invalidates it.
+     */
+    private static class HashKeys {
+        private volatile Keyed<String> hashKey;
+        private volatile Keyed<List<String>> hashKeys;
+
+        String hashKey(final BookModel book) {
+            final Keyed<String> known = hashKey;
+            if (known != null && known.isFor(book)) {
+                return known.value();
+            }
+            final String authorName = book.authorName;
+            final String title = book.title;
+            final String computed = Optional.ofNullable(cleanAuthor(authorName)).map(String::toLowerCase).orElse("") + "\t" +
+                Optional.ofNullable(cleanTitle(title)).map(String::toLowerCase).orElse("");
+            hashKey = new Keyed<>(authorName, title, computed);
+            return computed;
+        }
+
+        List<String> hashKeys(final BookModel book) {
+            final Keyed<List<String>> known = hashKeys;
+            if (known != null && known.isFor(book)) {
+                return known.value();
+            }
+            final String authorName = book.authorName;
+            final String title = book.title;
+            final String cleanedTitle = Optional.ofNullable(cleanTitle(title)).map(String::toLowerCase).orElse("");
+            final List<String> computed = book.streamAuthors()
+                .map(author -> author.concat("\t").concat(cleanedTitle))
+                .collect(Collectors.toUnmodifiableList());
+            hashKeys = new Keyed<>(authorName, title, computed);
+            return computed;
+        }
+    }
+
+    private record Keyed<T>(String authorName, String title, T value) {
+        boolean isFor(final BookModel book) {
+            // Identity is enough: a changed value is always a different String.
+            return authorName == book.authorName && title == book.title;
+        }
+    }
+
     @Data
     @JsonInclude(JsonInclude.Include.NON_EMPTY)
     @NoArgsConstructor
@@ -0,0 +1,184 @@
+package org.rickosborne.romance.db.model;
+
+import lombok.NonNull;
+import org.rickosborne.romance.db.Importable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link ModelSchema#mergeModels(Object[])} compiled for one schema: how each attribute
+ * merges is decided once, then all the sources are folded into a single result.
+ */
+final class MergePlan<M> {
+    private static final Map<Class<?>, MergePlan<?>> PLANS = new ConcurrentHashMap<>();
+
+    static <M> MergePlan<M> forSchema(@NonNull final ModelSchema<M> schema) {
+        @SuppressWarnings("unchecked") final MergePlan<M> plan = (MergePlan<M>) PLANS.computeIfAbsent(schema.getClass(), c -> new MergePlan<>(schema));
+        return plan;
+    }
+
+    private final List<SchemaAttribute<M, Object>> attributes;
+    /**
+     * How each attribute's values are poured together, or null if it isn't a container.
+     */
+    private final Container[] containers;
+    private final ModelSchema<M> schema;
+
+    private MergePlan(final ModelSchema<M> schema) {
+        this.schema = schema;
+        this.attributes = List.copyOf(schema.getAttributes());
+        this.containers = new Container[attributes.size()];
+        for (int i = 0; i < containers.length; i++) {
+            containers[i] = Container.forType(attributes.get(i).getAttributeType());
+        }
+    }
+
+    /**
+     * Folds the models from left to right, skipping nulls.
+     * With a single non-null model, that model is returned as-is.
+     */
+    M merge(final M[] models) {
+        int first = -1;
+        int count = 0;
+        for (int m = 0; m < models.length; m++) {
+            if (models[m] != null) {
+                first = first < 0 ? m : first;
+                count++;
+            }
+        }
+        if (count < 2) {
+            return first < 0 ? null : models[first];
+        }
+        final M result = schema.buildModel();
+        for (int i = 0; i < containers.length; i++) {
+            final SchemaAttribute<M, Object> attribute = attributes.get(i);
+            final Container container = containers[i];
+            final Class<?> attributeType = attribute.getAttributeType();
+            if (container != null) {
+                mergeContainer(container, attribute, models, first, result);
+            } else if (attributeType == Integer.class) {
+                mergeInteger(attribute, models, first, result);
+            } else {
+                mergeValue(attribute, models, first, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sets, maps, and {@link Importable} values live inside the result, so each source is poured in directly.
+     */
+    private void mergeContainer(
+        final Container container,
+        final SchemaAttribute<M, Object> attribute,
+        final M[] models,
+        final int first,
+        final M result
+    ) {
+        Object before = attribute.getAttribute(models[first]);
+        for (int m = first + 1; m < models.length; m++) {
+            if (models[m] == null) {
+                continue;
+            }
+            final Object after = attribute.getAttribute(models[m]);
+            final Object chosen = attribute.chooseAttributeValue(before, after);
+            if (chosen == null) {
+                continue;
+            }
+            if (before == null) {
+                attribute.setAttribute(result, chosen);
+                before = attribute.getAttribute(result);
+                continue;
+            }
+            final Object into = attribute.getAttribute(result);
+            if (before != into) {
+                container.pour(before, into);
+            }
+            container.pour(after, into);
+            before = into;
+        }
+    }
+
+    /**
+     * A later positive count wins, otherwise the earlier one is kept.
+     */
+    private void mergeInteger(
+        final SchemaAttribute<M, Object> attribute,
+        final M[] models,
+        final int first,
+        final M result
+    ) {
+        Integer merged = (Integer) attribute.getAttribute(models[first]);
+        for (int m = first + 1; m < models.length; m++) {
+            if (models[m] == null) {
+                continue;
+            }
+            final Integer after = (Integer) attribute.getAttribute(models[m]);
+            if (after != null && (merged == null || after > 0)) {
+                merged = after;
+            }
+        }
+        if (merged != null) {
+            attribute.setAttribute(result, merged);
+        }
+    }
+
+    private void mergeValue(
+        final SchemaAttribute<M, Object> attribute,
+        final M[] models,
+        final int first,
+        final M result
+    ) {
+        Object merged = attribute.getAttribute(models[first]);
+        for (int m = first + 1; m < models.length; m++) {
+            if (models[m] != null) {
+                merged = attribute.settleAttributeValue(attribute.chooseAttributeValue(merged, attribute.getAttribute(models[m])));
+            }
+        }
+        if (merged != null) {
+            attribute.setAttribute(result, merged);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private enum Container {
+        Importables {
+            @Override
+            void pour(final Object from, final Object into) {
+                ((Importable<Object>) into).importFrom(from);
+            }
+        },
+        Maps {
+            @Override
+            void pour(final Object from, final Object into) {
+                ((Map<Object, Object>) into).putAll((Map<Object, Object>) from);
+            }
+        },
+        Sets {
+            @Override
+            void pour(final Object from, final Object into) {
+                ((Set<Object>) into).addAll((Set<Object>) from);
+            }
+        },
+        ;
+
+        /**
+         * The container kind for the type, or null for counts and plain values.
+         */
+        static Container forType(final Class<?> attributeType) {
+            if (attributeType == Set.class) {
+                return Sets;
+            } else if (attributeType == Map.class) {
+                return Maps;
+            } else if (Importable.class.isAssignableFrom(attributeType)) {
+                return Importables;
+            }
+            return null;
+        }
+
+        abstract void pour(final Object from, final Object into);
+    }
+}
@@ -34,4 +34,11 @@ public interface SchemaAttribute<M, A> {
     Class<M> getModelType();
 
     void setAttribute(@NonNull final M model, final A value);
+
+    /**
+     * The value {@link #setAttribute(Object, Object)} would choose to keep on a freshly built model.
+     */
+    default A settleAttributeValue(final A value) {
+        return value;
+    }
 }
@@ -0,0 +1,167 @@
+package org.rickosborne.romance.db.postgresql;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Queues column updates to {@code bookwyrm_book} and writes them as JDBC batches.
+ * Updates which set the same columns share one statement shape, so a backfill of a few
+ * columns needs only a few prepared statements, and each batch is one round trip.
+ * A flush writes everything queued in a single transaction.  In a dry run, the plan
+ * is logged and nothing is written.  Safe to share between threads.
+ */
+@Slf4j
+public class BookWyrmBookWriter implements Closeable {
+    @Getter
+    private final int batchSize;
+    @Getter
+    @Setter
+    private boolean dryRun = false;
+    /**
+     * Queued rows by their sorted column names.
+     */
+    private final Map<List<String>, List<Row>> pending = new LinkedHashMap<>();
+    private int pendingCount = 0;
+    private final PGConnectionPool pool;
+
+    public BookWyrmBookWriter(
+        @NonNull final PGConnectionPool pool,
+        final int batchSize
+    ) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1: " + batchSize);
+        }
+        this.pool = pool;
+        this.batchSize = batchSize;
+    }
+
+    private static String sqlFor(final List<String> columns) {
+        return "UPDATE bookwyrm_book SET " + String.join(" = ?, ", columns) + " = ? WHERE (id = ?)";
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+
+    /**
+     * The statements a flush would run, with how many rows and batches each would take.
+     */
+    public synchronized List<String> describePlan() {
+        final List<String> plan = new ArrayList<>(pending.size());
+        for (final Map.Entry<List<String>, List<Row>> entry : pending.entrySet()) {
+            final int rows = entry.getValue().size();
+            plan.add(String.format("%s -- %d row(s) in %d batch(es)", sqlFor(entry.getKey()), rows, (rows + batchSize - 1) / batchSize));
+        }
+        return plan;
+    }
+
+    /**
+     * Write everything queued, or log the plan for a dry run.
+     */
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        if (dryRun) {
+            log.info("Would update {} book(s):\n{}", pendingCount, String.join("\n", describePlan()));
+        } else {
+            try {
+                pool.withConnection(pooled -> {
+                    final Connection db = pooled.getConnection();
+                    // Already inside a transaction, such as a cursor's, so leave it to the owner.
+                    final boolean ownTransaction = db.getAutoCommit();
+                    if (ownTransaction) {
+                        db.setAutoCommit(false);
+                    }
+                    try {
+                        for (final Map.Entry<List<String>, List<Row>> entry : pending.entrySet()) {
+                            writeShape(pooled.prepare(sqlFor(entry.getKey())), entry.getKey(), entry.getValue());
+                        }
+                        if (ownTransaction) {
+                            db.commit();
+                        }
+                    } catch (SQLException | RuntimeException e) {
+                        if (ownTransaction) {
+                            db.rollback();
+                        }
+                        throw e;
+                    } finally {
+                        if (ownTransaction) {
+                            db.setAutoCommit(true);
+                        }
+                    }
+                    return null;
+                });
+            } catch (SQLException e) {
+                throw new RuntimeException("Could not update " + pendingCount + " book(s)", e);
+            }
+            log.debug("Updated {} book(s) with {} statement(s)", pendingCount, pending.size());
+        }
+        pending.clear();
+        pendingCount = 0;
+    }
+
+    /**
+     * Queue an update of the columns for the book, flushing once a full batch is waiting.
+     * Values are bound with {@link PreparedStatement#setObject}.
+     */
+    public synchronized void update(
+        final int bookId,
+        @NonNull final Map<String, Object> columns
+    ) {
+        if (columns.isEmpty()) {
+            return;
+        }
+        final Map<String, Object> sorted = new TreeMap<>(columns);
+        pending.computeIfAbsent(List.copyOf(sorted.keySet()), k -> new ArrayList<>())
+            .add(new Row(bookId, sorted.values().toArray()));
+        pendingCount++;
+        if (pendingCount >= batchSize) {
+            flush();
+        }
+    }
+
+    private void writeShape(
+        final PreparedStatement ps,
+        final List<String> columns,
+        final List<Row> rows
+    ) throws SQLException {
+        int batched = 0;
+        try {
+            for (final Row row : rows) {
+                for (int i = 0; i < row.values.length; i++) {
+                    ps.setObject(i + 1, row.values[i]);
+                }
+                ps.setInt(row.values.length + 1, row.bookId);
+                ps.addBatch();
+                batched++;
+                if (batched % batchSize == 0 || batched == rows.size()) {
+                    for (final int count : ps.executeBatch()) {
+                        if (count != 1 && count != Statement.SUCCESS_NO_INFO) {
+                            log.warn("Expected 1 update, got {}: {}", count, columns);
+                        }
+                    }
+                }
+            }
+        } finally {
+            ps.clearBatch();
+        }
+    }
+
+    private record Row(int bookId, Object[] values) {
+    }
+}
@@ -24,6 +24,13 @@ public class BookWyrmPGAuthorStore extends BookWyrmPGStore<AuthorModel> {
         super(config, AuthorModel.class);
     }
 
+    public BookWyrmPGAuthorStore(
+        final @NonNull BookWyrmConfig config,
+        final @NonNull PGConnectionPool pool
+    ) {
+        super(config, AuthorModel.class, pool);
+    }
+
     @Override
     public AuthorModel findById(final String id) {
         throw new NotImplementedException();
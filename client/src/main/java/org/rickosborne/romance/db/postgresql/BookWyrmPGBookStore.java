@@ -1,26 +1,22 @@
 package org.rickosborne.romance.db.postgresql;
 
-import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Getter;
-import lombok.NoArgsConstructor;
 import lombok.NonNull;
-import lombok.SneakyThrows;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.rickosborne.romance.client.bookwyrm.BookWyrmConfig;
 import org.rickosborne.romance.client.bookwyrm.Shelf;
+import org.rickosborne.romance.db.AttributeQuery;
+import org.rickosborne.romance.db.model.BookAttributes;
 import org.rickosborne.romance.db.model.BookModel;
+import org.rickosborne.romance.db.model.SchemaAttribute;
 import org.rickosborne.romance.util.BookRating;
-import org.rickosborne.romance.util.Once;
 import org.rickosborne.romance.util.Pair;
 import org.rickosborne.romance.util.StringStuff;
-import org.rickosborne.romance.util.ThrowingBiConsumer;
 import org.rickosborne.romance.util.UrlRank;
 
 import java.net.URL;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
@@ -28,15 +24,20 @@ import java.time.LocalTime;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.rickosborne.romance.client.bookwyrm.BookWyrm.BOOK_SUBTITLE_DELIMITER;
 import static org.rickosborne.romance.client.bookwyrm.BookWyrm.likeExpression;
@@ -59,56 +60,101 @@ public class BookWyrmPGBookStore extends BookWyrmPGStore<BookModel> {
     }
 
     @Getter(lazy = true)
-    private final IdCache idCache = Once.supply(() -> {
-        final IdCache cache = new IdCache();
-        fetchDbIds(cache);
-        return cache;
-    });
+    private final IdCache idCache = loadIdCache();
+    /**
+     * Where {@link #save} and the {@code update} methods queue their changes.
+     */
+    @Getter(lazy = true)
+    private final BookWyrmBookWriter writer = new BookWyrmBookWriter(getPool(), getConfig().getUpdateBatchSize());
 
     public BookWyrmPGBookStore(final @NonNull BookWyrmConfig config) {
         super(config, BookModel.class);
     }
 
+    public BookWyrmPGBookStore(
+        final @NonNull BookWyrmConfig config,
+        final @NonNull PGConnectionPool pool
+    ) {
+        super(config, BookModel.class, pool);
+    }
+
     public List<Integer> allIdsFor(final int dbId) {
-        final Set<Integer> set = new HashSet<>();
-        set.add(dbId);
-        final Integer maybeParentId = queryOne(
-            "SELECT parent_work_id FROM bookwyrm_edition WHERE book_ptr_id = ?",
-            ps -> ps.setInt(1, dbId),
-            rs -> rs.getInt("parent_work_id")
+        return allIdsForMany(List.of(dbId)).get(dbId);
+    }
+
+    /**
+     * Every edition id related to each book, via its parent work, in two queries.
+     */
+    public Map<Integer, List<Integer>> allIdsForMany(@NonNull final Collection<Integer> dbIds) {
+        final Set<Integer> ids = new LinkedHashSet<>(dbIds);
+        final Map<Integer, Integer> parentIds = new HashMap<>();
+        query(
+            "SELECT book_ptr_id, parent_work_id FROM bookwyrm_edition WHERE book_ptr_id = ANY(?)",
+            ps -> setIdArray(ps, 1, ids),
+            rs -> parentIds.putIfAbsent(rs.getInt("book_ptr_id"), rs.getInt("parent_work_id"))
         );
-        final int parentId = maybeParentId == null ? dbId : maybeParentId;
-        set.add(parentId);
-        final List<Integer> childIds = query(
-            "SELECT book_ptr_id FROM bookwyrm_edition WHERE parent_work_id = ?",
-            ps -> ps.setInt(1, parentId),
-            rs -> rs.getInt("book_ptr_id")
+        final Map<Integer, List<Integer>> childIds = new HashMap<>();
+        query(
+            "SELECT parent_work_id, book_ptr_id FROM bookwyrm_edition WHERE parent_work_id = ANY(?)",
+            ps -> setIdArray(ps, 1, ids.stream().map(id -> parentIds.getOrDefault(id, id)).collect(Collectors.toSet())),
+            rs -> childIds.computeIfAbsent(rs.getInt("parent_work_id"), k -> new ArrayList<>()).add(rs.getInt("book_ptr_id"))
         );
-        set.addAll(childIds);
-        return new ArrayList<>(set);
+        final Map<Integer, List<Integer>> result = new LinkedHashMap<>();
+        for (final Integer dbId : ids) {
+            final Set<Integer> set = new HashSet<>();
+            set.add(dbId);
+            final int parentId = parentIds.getOrDefault(dbId, dbId);
+            set.add(parentId);
+            set.addAll(childIds.getOrDefault(parentId, List.of()));
+            result.put(dbId, new ArrayList<>(set));
+        }
+        return result;
+    }
+
+    /**
+     * Writes any queued changes before letting go of the connections.
+     */
+    @Override
+    public void close() {
+        try {
+            getWriter().close();
+        } finally {
+            super.close();
+        }
     }
 
     public boolean exists(final BookModel bookModel) {
         return getIdCache().findDbId(bookModel) != null;
     }
 
-    @SneakyThrows
+    /**
+     * Adds the books updated since the cache's high-water mark, or all of them for an empty cache.
+     * Books which merely lost their last shelf aren't seen until the cache file is removed.
+     */
     private void fetchDbIds(final IdCache cache) {
-        query(
-            "SELECT b.id, b.title, a.name, COUNT(bs.id) AS shelfCount " +
+        final OffsetDateTime since = cache.getHighWaterMark();
+        queryEach(
+            "SELECT b.id, b.title, a.name, COUNT(bs.id) AS shelfCount, " +
+                "  GREATEST(b.updated_date, MAX(bs.updated_date)) AS updated " +
                 "FROM bookwyrm_book AS b " +
                 "INNER JOIN bookwyrm_book_authors AS ba ON (b.id = ba.book_id) " +
                 "INNER JOIN bookwyrm_author AS a ON (ba.author_id = a.id) " +
                 "LEFT JOIN bookwyrm_shelfbook AS bs ON (b.id = bs.book_id) " +
+                (since == null ? "" : "WHERE b.id IN (" +
+                    "  SELECT id FROM bookwyrm_book WHERE updated_date > ? " +
+                    "  UNION SELECT book_id FROM bookwyrm_shelfbook WHERE updated_date > ?) ") +
                 "GROUP BY b.id, b.title, a.name ",
-            null,
+            since == null ? null : ps -> {
+                ps.setObject(1, since);
+                ps.setObject(2, since);
+            },
             rs -> {
                 final int id = rs.getInt("id");
                 final String title = rs.getString("title");
                 final String author = rs.getString("name");
                 final int shelfCount = rs.getInt("shelfCount");
                 cache.add(id, title, author, shelfCount);
-                return null;
+                cache.advanceMark(rs.getObject("updated", OffsetDateTime.class));
             }
         );
     }
@@ -144,43 +190,7 @@ public class BookWyrmPGBookStore extends BookWyrmPGStore<BookModel> {
     }
 
     public BookModel findByDbIdAndUser(final int dbId, final Integer userId) {
-        final Pair<BookModel, Integer> pair = queryOne(
-            "SELECT * " +
-                "FROM bookwyrm_book " +
-                "WHERE id = ? ",
-            ps -> ps.setInt(1, dbId),
-            this::fromResultSet
-        );
-        final BookModel book = pair == null ? null : pair.getLeft();
-        if (book == null) {
-            return null;
-        }
-        final List<String> authorNames = findAuthorNamesForDbId(dbId);
-        if (authorNames != null && !authorNames.isEmpty()) {
-            book.setAuthorName(String.join(", ", authorNames));
-        }
-        for (final Pair<String, URL> linkPair : findLinksForDbId(dbId)) {
-            final String domain = linkPair.getLeft();
-            final URL url = linkPair.getRight();
-            if ("audiobookstore.com".equals(domain)) {
-                book.setAudiobookStoreUrl(url);
-            } else if ("goodreads.com".equals(domain)) {
-                book.setGoodreadsUrl(url);
-            } else if ("thestorygraph.com".equals(domain)) {
-                book.setStorygraphUrl(url);
-            }
-        }
-        if (userId != null) {
-            final Double rating = findRating(dbId, userId);
-            if (rating != null) {
-                book.getRatings().put(BookRating.Overall, rating);
-            }
-            final ReadDates readDates = findReadDatesForDbId(dbId, userId);
-            if (readDates != null && readDates.finishDate != null) {
-                book.setDateRead(readDates.finishDate);
-            }
-        }
-        return book;
+        return findManyByDbIds(List.of(dbId), userId).get(dbId);
     }
 
     @Override
@@ -192,6 +202,55 @@ public class BookWyrmPGBookStore extends BookWyrmPGStore<BookModel> {
         return findByDbIdAndUser(dbId, null);
     }
 
+    /**
+     * Resolves each book from the {@link IdCache} when it can, then the rest with one {@code LIKE}
+     * query.  Each remaining book gets one row per author name, tagged with its position,
+     * and keeps its best match by edition rank, as a query per book would have.
+     */
+    private List<Integer> findDbIdsLike(@NonNull final List<BookModel> models) {
+        final Integer[] dbIds = new Integer[models.size()];
+        final List<Integer> positions = new ArrayList<>();
+        final List<String> titles = new ArrayList<>();
+        final List<String> authors = new ArrayList<>();
+        for (int i = 0; i < models.size(); i++) {
+            final BookModel model = models.get(i);
+            if (model == null) {
+                continue;
+            }
+            final List<String> authorNames = List.of(model.getAuthorName().split(",\\s+"));
+            final String title = Optional.ofNullable(model.getTitle())
+                .map(t -> t.replaceAll("(" + BOOK_SUBTITLE_DELIMITER + ").*", ""))
+                .orElse(null);
+            dbIds[i] = getIdCache().resolve(title, authorNames);
+            if (dbIds[i] != null) {
+                continue;
+            }
+            for (final String authorName : authorNames) {
+                positions.add(i);
+                titles.add(likeExpression(title));
+                authors.add(likeExpression(authorName));
+            }
+        }
+        if (!positions.isEmpty()) {
+            query(
+                "SELECT DISTINCT ON (q.n) q.n, b.id " +
+                    "FROM unnest(?::integer[], ?::text[], ?::text[]) AS q(n, title, author) " +
+                    "  INNER JOIN bookwyrm_book AS b ON (LOWER(b.title) LIKE q.title) " +
+                    "  INNER JOIN bookwyrm_book_authors AS ba ON (b.id = ba.book_id) " +
+                    "  INNER JOIN bookwyrm_author AS a ON (ba.author_id = a.id) AND (LOWER(a.name) LIKE q.author) " +
+                    "  LEFT JOIN bookwyrm_edition AS e ON (b.id = e.book_ptr_id) " +
+                    "ORDER BY q.n, COALESCE(e.edition_rank, 0) DESC, b.id",
+                ps -> {
+                    setIdArray(ps, 1, positions);
+                    setTextArray(ps, 2, titles);
+                    setTextArray(ps, 3, authors);
+                },
+                rs -> dbIds[rs.getInt("n")] = rs.getInt("id")
+            );
+        }
+        return Arrays.asList(dbIds);
+    }
+
     @Override
     public BookModel findLike(final BookModel model) {
         return Optional.ofNullable(findLikeForUser(model, null)).map(Pair::getLeft).orElse(null);
@@ -201,35 +260,24 @@ public class BookWyrmPGBookStore extends BookWyrmPGStore<BookModel> {
         if (model == null) {
             return null;
         }
-        final List<String> authorNames = List.of(model.getAuthorName().split(",\\s+"));
-        final String aq = authorNames.stream().map(a -> "LOWER(a.name) LIKE ?").collect(Collectors.joining(" OR "));
-        final String title = Optional.ofNullable(model.getTitle())
-            .map(t -> t.replaceAll("(" + BOOK_SUBTITLE_DELIMITER + ").*", ""))
-            .orElse(null);
-        final Integer bookId = queryOne(
-            "SELECT DISTINCT b.id, COALESCE(e.edition_rank, 0) as e_edition_rank " +
-                "FROM bookwyrm_book AS b " +
-                "  INNER JOIN bookwyrm_book_authors AS ba ON (b.id = ba.book_id) " +
-                "  INNER JOIN bookwyrm_author AS a ON (ba.author_id = a.id) " +
-                "  LEFT JOIN bookwyrm_edition AS e ON (b.id = e.book_ptr_id) " +
-                "WHERE LOWER(b.title) LIKE ? " +
-                "  AND (" + aq + ") " +
-                "ORDER BY e_edition_rank DESC, b.id " +
-                "LIMIT 1",
-            ps -> {
-                ps.setString(1, likeExpression(title));
-                int index = 2;
-                for (final String authorName : authorNames) {
-                    ps.setString(index, likeExpression(authorName));
-                    index++;
-                }
-            },
-            rs -> rs.getInt("id")
-        );
-        if (bookId == null) {
-            return null;
+        return findLikeManyForUser(List.of(model), userId).get(0);
+    }
+
+    /**
+     * Looks up all the models' ids together, then hydrates all the matches together.
+     * The result lines up with the models, with null for any not found.
+     */
+    public List<Pair<BookModel, Integer>> findLikeManyForUser(
+        @NonNull final List<BookModel> models,
+        final Integer userId
+    ) {
+        final List<Integer> dbIds = findDbIdsLike(models);
+        final Map<Integer, BookModel> books = findManyByDbIds(dbIds.stream().filter(Objects::nonNull).toList(), userId);
+        final List<Pair<BookModel, Integer>> result = new ArrayList<>(models.size());
+        for (final Integer dbId : dbIds) {
+            result.add(dbId == null ? null : Pair.build(books.get(dbId), dbId));
         }
-        return Pair.build(findByDbIdAndUser(bookId, userId), bookId);
+        return result;
     }
 
     public List<Pair<String, URL>> findLinksForDbId(final int dbId) {
@@ -247,6 +295,125 @@ public class BookWyrmPGBookStore extends BookWyrmPGStore<BookModel> {
         )).orElseGet(List::of);
     }
 
+    /**
+     * Hydrates the books along with their authors, links, and, given a user, that user's
+     * rating and read date, in a fixed number of queries no matter how many ids there are.
+     */
+    public Map<Integer, BookModel> findManyByDbIds(
+        @NonNull final Collection<Integer> dbIds,
+        final Integer userId
+    ) {
+        final Set<Integer> ids = new LinkedHashSet<>(dbIds);
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        final Map<Integer, BookModel> found = new HashMap<>();
+        query(
+            "SELECT * " +
+                "FROM bookwyrm_book " +
+                "WHERE id = ANY(?) ",
+            ps -> setIdArray(ps, 1, ids),
+            rs -> {
+                final Pair<BookModel, Integer> pair = fromResultSet(rs);
+                found.put(pair.getRight(), pair.getLeft());
+                return null;
+            }
+        );
+        hydrate(found, userId);
+        final Map<Integer, BookModel> result = new LinkedHashMap<>();
+        for (final Integer dbId : ids) {
+            final BookModel book = found.get(dbId);
+            if (book != null) {
+                result.put(dbId, book);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Fills in authors, links, and the user's rating and read date for already-loaded books.
+     */
+    private void hydrate(
+        @NonNull final Map<Integer, BookModel> found,
+        final Integer userId
+    ) {
+        if (found.isEmpty()) {
+            return;
+        }
+        final Set<Integer> ids = found.keySet();
+        final Map<Integer, List<String>> authorNames = new HashMap<>();
+        query(
+            "SELECT " +
+                "  ba.book_id, a.name " +
+                "FROM bookwyrm_book_authors AS ba " +
+                "  INNER JOIN bookwyrm_author AS a ON (ba.book_id = ANY(?)) AND (ba.author_id = a.id) " +
+                "ORDER BY name ",
+            ps -> setIdArray(ps, 1, ids),
+            rs -> authorNames.computeIfAbsent(rs.getInt("book_id"), k -> new ArrayList<>()).add(rs.getString("name"))
+        );
+        authorNames.forEach((dbId, names) -> {
+            final BookModel book = found.get(dbId);
+            if (book != null) {
+                book.setAuthorName(String.join(", ", names));
+            }
+        });
+        query(
+            "SELECT fl.book_id, l.url, ld.name " +
+                "FROM bookwyrm_filelink AS fl " +
+                "  INNER JOIN bookwyrm_link AS l ON (fl.book_id = ANY(?)) AND (fl.link_ptr_id = l.id) " +
+                "  INNER JOIN bookwyrm_linkdomain AS ld ON (l.domain_id = ld.id) ",
+            ps -> setIdArray(ps, 1, ids),
+            rs -> {
+                final BookModel book = found.get(rs.getInt("book_id"));
+                if (book != null) {
+                    applyLink(book, rs.getString("name"), urlFromString(rs.getString("url")));
+                }
+                return null;
+            }
+        );
+        if (userId != null) {
+            final Set<Integer> rated = new HashSet<>();
+            query(
+                "SELECT r.book_id, r.rating " +
+                    "FROM bookwyrm_review AS r " +
+                    "  INNER JOIN bookwyrm_status AS s ON (r.book_id = ANY(?)) AND (r.status_ptr_id = s.id) AND (s.user_id = ?) ",
+                ps -> {
+                    setIdArray(ps, 1, ids);
+                    ps.setInt(2, userId);
+                },
+                rs -> {
+                    final int dbId = rs.getInt("book_id");
+                    final BookModel book = found.get(dbId);
+                    if (book != null && rated.add(dbId)) {
+                        book.getRatings().put(BookRating.Overall, rs.getDouble("rating"));
+                    }
+                    return null;
+                }
+            );
+            final Set<Integer> read = new HashSet<>();
+            query(
+                "SELECT book_id, start_date, finish_date " +
+                    "FROM bookwyrm_readthrough " +
+                    "WHERE (book_id = ANY(?)) AND (user_id = ?)",
+                ps -> {
+                    setIdArray(ps, 1, ids);
+                    ps.setInt(2, userId);
+                },
+                rs -> {
+                    final int dbId = rs.getInt("book_id");
+                    final BookModel book = found.get(dbId);
+                    if (book != null && read.add(dbId)) {
+                        final LocalDate finishDate = asLocalDate(rs, "finish_date");
+                        if (finishDate != null) {
+                            book.setDateRead(finishDate);
+                        }
+                    }
+                    return null;
+                }
+            );
+        }
+    }
+
     public Double findRating(
         final int bookId,
         final int userId
@@ -285,6 +452,20 @@ public class BookWyrmPGBookStore extends BookWyrmPGStore<BookModel> {
         return null;
     }
 
+    private static void applyLink(
+        @NonNull final BookModel book,
+        final String domain,
+        final URL url
+    ) {
+        if ("audiobookstore.com".equals(domain)) {
+            book.setAudiobookStoreUrl(url);
+        } else if ("goodreads.com".equals(domain)) {
+            book.setGoodreadsUrl(url);
+        } else if ("thestorygraph.com".equals(domain)) {
+            book.setStorygraphUrl(url);
+        }
+    }
+
     private Pair<BookModel, Integer> fromResultSet(final ResultSet rs) throws SQLException {
         final BookModel book = BookModel.build();
         book.setTitle(rs.getString("title"));
@@ -310,10 +491,32 @@ public class BookWyrmPGBookStore extends BookWyrmPGStore<BookModel> {
         return idFromAuthorTitle(model.getAuthorName(), model.getTitle());
     }
 
+    /**
+     * The saved cache, caught up with the database when it can be reached.
+     */
+    private IdCache loadIdCache() {
+        final IdCache cache = IdCache.readFrom(IdCache.CACHE_PATH_DEFAULT);
+        try {
+            fetchDbIds(cache);
+        } catch (RuntimeException e) {
+            if (cache.getHighWaterMark() == null) {
+                throw e;
+            }
+            log.warn("Could not refresh the ID cache, so using it as of {}", cache.getHighWaterMark(), e);
+            return cache;
+        }
+        cache.writeIfChanged(IdCache.CACHE_PATH_DEFAULT);
+        return cache;
+    }
+
     public boolean isShelved(final BookModel bookModel) {
         return getIdCache().isShelved(bookModel);
     }
 
+    /**
+     * Queues the columns which were empty and now have values.  They are written with the
+     * next full batch, {@link BookWyrmBookWriter#flush}, or {@link #close}.
+     */
     @Override
     public BookModel save(final BookModel updated) {
         final BookModel existing = findLike(updated);
@@ -321,48 +524,29 @@ public class BookWyrmPGBookStore extends BookWyrmPGStore<BookModel> {
         if (existing == null || dbId == null) {
             throw new IllegalStateException("Not implemented: save new");
         }
-        final List<String> setStatements = new LinkedList<>();
-        final List<ThrowingBiConsumer<PreparedStatement, Integer, SQLException>> paramHandlers = new LinkedList<>();
+        final Map<String, Object> columns = new LinkedHashMap<>();
         class Helper {
             <T> void ifChanged(
                 final Function<BookModel, T> getter,
-                final String setStatement,
-                final Function<T, ThrowingBiConsumer<PreparedStatement, Integer, SQLException>> paramHandler
+                final String column,
+                final Function<T, Object> toColumn
             ) {
                 final T before = getter.apply(existing);
                 final T after = getter.apply(updated);
                 if (before == null && after != null) {
-                    setStatements.add(setStatement + " = ?");
-                    paramHandlers.add(paramHandler.apply(after));
+                    columns.put(column, toColumn.apply(after));
                 }
             }
         }
         final Helper helper = new Helper();
-        helper.ifChanged(BookModel::getDatePublish, "published_date", v -> (ps, n) -> ps.setObject(n, OffsetDateTime.of(v, LocalTime.MIDNIGHT, ZoneOffset.UTC)));
-        helper.ifChanged(BookModel::getSeriesName, "series", v -> (ps, n) -> ps.setString(n, v));
-        helper.ifChanged(BookModel::getSeriesPart, "series_number", v -> (ps, n) -> ps.setString(n, v));
-        helper.ifChanged(BookModel::getPublisherDescription, "description", v -> (ps, n) -> ps.setString(n, v));
-        if (setStatements.size() > 0) {
-            final Connection db = getConnection();
-            try {
-                final String sql = "UPDATE bookwyrm_book SET " +
-                    String.join(", ", setStatements) +
-                    " WHERE (id = ?)";
-                final PreparedStatement ps = db.prepareStatement(sql);
-                for (int i = 0; i < paramHandlers.size(); i++) {
-                    paramHandlers.get(i).apply(ps, i + 1);
-                }
-                ps.setInt(paramHandlers.size() + 1, dbId);
-                log.info("Would execute:\n{}", sql);
-                //                 final int updateCount = ps.executeUpdate();
-                //                if (updateCount != 1) {
-                //                    log.info("Expected 1 update, got {}:\n{}", updateCount, sql);
-                //                }
-            } catch (SQLException e) {
-                throw new RuntimeException(e);
-            }
-        } else {
+        helper.ifChanged(BookModel::getDatePublish, "published_date", v -> OffsetDateTime.of(v, LocalTime.MIDNIGHT, ZoneOffset.UTC));
+        helper.ifChanged(BookModel::getSeriesName, "series", v -> v);
+        helper.ifChanged(BookModel::getSeriesPart, "series_number", v -> v);
+        helper.ifChanged(BookModel::getPublisherDescription, "description", v -> v);
+        if (columns.isEmpty()) {
             log.debug("No need to update: {}", updated);
+        } else {
+            getWriter().update(dbId, columns);
         }
         return null;
     }
@@ -371,87 +555,146 @@ public class BookWyrmPGBookStore extends BookWyrmPGStore<BookModel> {
         final String description,
         final List<Integer> bookIds
     ) {
-        updateMany(bookIds, Map.of("description", (ps, n) -> ps.setString(n, description)));
+        updateMany(bookIds, Map.of("description", description));
     }
 
     public void updateGoodreadsKey(
         final String goodreadsKey,
         final List<Integer> bookIds
     ) {
-        updateMany(bookIds, Map.of("goodreads_key", (ps, n) -> ps.setString(n, goodreadsKey)));
+        updateMany(bookIds, Map.of("goodreads_key", goodreadsKey));
     }
 
     protected void updateMany(
         @NonNull final List<Integer> bookIds,
-        @NonNull final Map<String, ThrowingBiConsumer<PreparedStatement, Integer, SQLException>> fields
+        @NonNull final Map<String, Object> columns
     ) {
-        final List<String> fieldNames = fields.keySet().stream().sorted().collect(Collectors.toList());
-        final String setStatements = fieldNames.stream().map(fn -> fn + " = ?").collect(Collectors.joining(", "));
-        final String qs = bookIds.stream().map(id -> "?").collect(Collectors.joining(", "));
-        log.trace("updateMany {}: {}", bookIds, fieldNames);
-        query(
-            "UPDATE bookwyrm_book " +
-                "SET " + setStatements + " " +
-                "WHERE (id IN (" + qs + "))",
-            ps -> {
-                int index = 1;
-                for (final String fieldName : fieldNames) {
-                    fields.get(fieldName).apply(ps, index);
-                    index++;
-                }
-                for (final Integer bookId : bookIds) {
-                    ps.setInt(index, bookId);
-                    index++;
-                }
-            },
-            null
-        );
+        log.trace("updateMany {}: {}", bookIds, columns.keySet());
+        final BookWyrmBookWriter writer = getWriter();
+        for (final Integer bookId : bookIds) {
+            writer.update(bookId, columns);
+        }
     }
 
-    @NoArgsConstructor(access = AccessLevel.PROTECTED)
-    public static class IdCache {
-        private final Map<String, Integer> cache = new HashMap<>();
-        @Getter
-        private int count = 0;
-        private final Set<String> shelved = new HashSet<>();
-
-        public void add(final int dbId, final String title, final String author, final int shelfCount) {
-            final String id = idFromAuthorTitle(author, title);
-            if (id != null) {
-                final int countBefore = cache.size();
-                if (shelfCount > 0) {
-                    cache.put(id, dbId);
-                } else {
-                    cache.putIfAbsent(id, dbId);
-                }
-                if (cache.size() > countBefore) {
-                    count++;
-                }
-                if (shelfCount > 0) {
-                    shelved.add(id);
-                }
+    /**
+     * Every book, hydrated as in {@link #findManyByDbIds} for the configured user.
+     * The stream holds a database connection until it is exhausted or closed.
+     */
+    @Override
+    public Stream<BookModel> stream() {
+        return streamForUser(getConfig().getUserId());
+    }
+
+    /**
+     * Title and publish date conditions become a {@code WHERE} clause, and every condition is
+     * checked again on the hydrated books, as ratings and read dates are for the configured user.
+     * Close the stream when not reading it to the end.
+     */
+    @Override
+    public Stream<BookModel> stream(@NonNull final AttributeQuery<BookModel> query) {
+        final List<String> where = new ArrayList<>();
+        final List<Object> params = new ArrayList<>();
+        for (final AttributeQuery.Condition<BookModel> condition : query.getConditions()) {
+            final SchemaAttribute<BookModel, ?> attribute = condition.attribute();
+            if (attribute == BookAttributes.title) {
+                whereTitle(condition, where, params);
+            } else if (attribute == BookAttributes.datePublish) {
+                wherePublished(condition, where, params);
             }
         }
+        return streamWhere(where, params, getConfig().getUserId()).filter(query);
+    }
 
-        public Integer findDbId(final BookModel book) {
-            return cache.get(getId(book));
-        }
+    /**
+     * Every book, read through a cursor and hydrated one fetch-sized batch at a time.
+     * Close the stream, such as with try-with-resources, when not reading it to the end.
+     */
+    public Stream<BookModel> streamForUser(final Integer userId) {
+        return streamWhere(List.of(), List.of(), userId);
+    }
 
-        public Integer findDbId(final String id) {
-            return cache.get(id);
-        }
+    private Stream<BookModel> streamWhere(
+        @NonNull final List<String> where,
+        @NonNull final List<Object> params,
+        final Integer userId
+    ) {
+        return streamQuery(
+            "SELECT * " +
+                "FROM bookwyrm_book " +
+                (where.isEmpty() ? "" : "WHERE " + String.join(" AND ", where) + " ") +
+                "ORDER BY id ",
+            params.isEmpty() ? null : ps -> {
+                for (int i = 0; i < params.size(); i++) {
+                    ps.setObject(i + 1, params.get(i));
+                }
+            },
+            this::fromResultSet,
+            batch -> {
+                final Map<Integer, BookModel> found = new HashMap<>();
+                for (final Pair<BookModel, Integer> pair : batch) {
+                    found.put(pair.getRight(), pair.getLeft());
+                }
+                hydrate(found, userId);
+            }
+        ).map(Pair::getLeft);
+    }
 
-        public void forceId(final String id, final int finalDbId) {
-            cache.put(id, finalDbId);
+    private static void wherePublished(
+        final AttributeQuery.Condition<BookModel> condition,
+        final List<String> where,
+        final List<Object> params
+    ) {
+        final LocalDate from;
+        final LocalDate until;
+        switch (condition.operator()) {
+            case Eq -> {
+                from = (LocalDate) condition.value();
+                until = from.plusDays(1);
+            }
+            case Range -> {
+                from = (LocalDate) condition.value();
+                until = (LocalDate) condition.until();
+            }
+            case IsNull -> {
+                where.add("(published_date IS NULL)");
+                return;
+            }
+            case NotNull -> {
+                where.add("(published_date IS NOT NULL)");
+                return;
+            }
+            default -> {
+                return;
+            }
         }
-
-        public String getId(final BookModel book) {
-            return idFromAuthorTitle(book.getAuthorName(), book.getTitle());
+        if (from != null) {
+            where.add("(published_date >= ?)");
+            params.add(OffsetDateTime.of(from, LocalTime.MIDNIGHT, ZoneOffset.UTC));
         }
+        if (until != null) {
+            where.add("(published_date < ?)");
+            params.add(OffsetDateTime.of(until, LocalTime.MIDNIGHT, ZoneOffset.UTC));
+        }
+    }
 
-        public boolean isShelved(final BookModel bookModel) {
-            final String id = getId(bookModel);
-            return id != null && shelved.contains(id);
+    private static void whereTitle(
+        final AttributeQuery.Condition<BookModel> condition,
+        final List<String> where,
+        final List<Object> params
+    ) {
+        switch (condition.operator()) {
+            case Eq -> {
+                where.add("(title = ?)");
+                params.add(condition.value());
+            }
+            case Prefix -> {
+                where.add("(title LIKE ?)");
+                params.add(((String) condition.value()).replaceAll("[\\\\%_]", "\\\\$0") + "%");
+            }
+            case IsNull -> where.add("(title IS NULL)");
+            case NotNull -> where.add("(title IS NOT NULL)");
+            default -> {
+            }
         }
     }
 
@@ -3,7 +3,7 @@ package org.rickosborne.romance.db.postgresql;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
-import lombok.SneakyThrows;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.NotImplementedException;
 import org.rickosborne.romance.NamingConvention;
@@ -17,62 +17,92 @@ import org.rickosborne.romance.util.ThrowingFunction;
 
 import java.io.Closeable;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
 import java.util.List;
-import java.util.Map;
-import java.util.Properties;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Slf4j
 @Getter(value = AccessLevel.PROTECTED)
 public abstract class BookWyrmPGStore<M> implements ModelStore<M>, Closeable {
     private final BookWyrmConfig config;
-    private Connection connection;
     @Getter(value = AccessLevel.PUBLIC)
     private final DbModel dbModel;
     private final ModelSchema<M> modelSchema;
     @Getter(value = AccessLevel.PUBLIC)
     private final Class<M> modelType;
     private final NamingConvention namingConvention = new NamingConvention();
-    private final Map<String, PreparedStatement> preparedStatements = new HashMap<>();
-
+    /**
+     * Rows per round trip for {@link #streamQuery}.
+     */
+    @Setter(value = AccessLevel.PUBLIC)
+    private int fetchSize;
+    private final PGConnectionPool pool;
+    /**
+     * Whether the pool was built for this store, and so closes with it.
+     */
+    private final boolean poolOwner;
 
     protected BookWyrmPGStore(
         @NonNull final BookWyrmConfig config,
         @NonNull final Class<M> modelType
+    ) {
+        this(config, modelType, null);
+    }
+
+    /**
+     * @param pool shared with other stores, and left open when this one closes; null for a pool of its own
+     */
+    protected BookWyrmPGStore(
+        @NonNull final BookWyrmConfig config,
+        @NonNull final Class<M> modelType,
+        final PGConnectionPool pool
     ) {
         this.config = config;
         this.modelType = modelType;
         this.modelSchema = ModelSchemas.schemaForModelType(modelType);
         this.dbModel = DbModel.forModelType(modelType);
+        this.fetchSize = config.getCursorFetchSize();
+        this.poolOwner = pool == null;
+        this.pool = pool == null ? PGConnectionPool.forConfig(config) : pool;
     }
 
     @Override
     public void close() {
-        if (connection != null) {
-            try {
-                connection.close();
-            } catch (SQLException e) {
-                log.warn("Could not close connection: {}", getClass().getSimpleName(), e);
-            }
-            connection = null;
+        if (poolOwner) {
+            pool.close();
         }
     }
 
-    @SneakyThrows
-    private Connection connect() {
-        if (connection == null) {
-            log.debug("Connecting: {}", getModelType().getSimpleName());
-            final Properties props = new Properties();
-            props.setProperty("ssl", "false");
-            connection = DriverManager.getConnection(config.getJdbcUrl(), props);
-        }
-        return connection;
+    /**
+     * Binds the ids as a single {@code integer[]} parameter, for use with {@code = ANY(?)}.
+     */
+    protected static void setIdArray(
+        @NonNull final PreparedStatement ps,
+        final int index,
+        @NonNull final Collection<Integer> ids
+    ) throws SQLException {
+        ps.setArray(index, ps.getConnection().createArrayOf("integer", ids.toArray()));
+    }
+
+    /**
+     * Binds the texts as a single {@code text[]} parameter, for use with {@code unnest(?)}.
+     */
+    protected static void setTextArray(
+        @NonNull final PreparedStatement ps,
+        final int index,
+        @NonNull final Collection<String> texts
+    ) throws SQLException {
+        ps.setArray(index, ps.getConnection().createArrayOf("text", texts.toArray()));
     }
 
     @Override
@@ -87,33 +117,29 @@ public abstract class BookWyrmPGStore<M> implements ModelStore<M>, Closeable {
     ) {
         // log.debug(sql);
         try {
-            @SuppressWarnings("resource") final Connection db = connect();
-            final PreparedStatement st = preparedStatements.computeIfAbsent(sql, s -> {
+            return pool.withConnection(pooled -> {
+                final PreparedStatement st;
                 try {
-                    return db.prepareStatement(s);
+                    st = pooled.prepare(sql);
                 } catch (SQLException e) {
-                    return null;
+                    throw new IllegalArgumentException("Bad SQL:\n" + sql, e);
                 }
-            });
-            if (st == null) {
-                throw new IllegalArgumentException("Bad SQL:\n" + sql);
-            }
-            if (params != null) {
-                params.accept(st);
-            }
-            final List<T> list = new LinkedList<>();
-            final ResultSet rs;
-            if (block == null) {
-                rs = null;
-                final int updated = st.executeUpdate();
-                log.trace("Updated {}", updated);
-            } else {
-                rs = st.executeQuery();
-                while (rs.next()) {
-                    list.add(block.apply(rs));
+                if (params != null) {
+                    params.accept(st);
                 }
-            }
-            return list;
+                final List<T> list = new ArrayList<>();
+                if (block == null) {
+                    final int updated = st.executeUpdate();
+                    log.trace("Updated {}", updated);
+                } else {
+                    try (final ResultSet rs = st.executeQuery()) {
+                        while (rs.next()) {
+                            list.add(block.apply(rs));
+                        }
+                    }
+                }
+                return list;
+            });
         } catch (SQLException e) {
             throw new RuntimeException(String.format("Could not query:\n%s", sql), e);
         }
@@ -128,9 +154,156 @@ public abstract class BookWyrmPGStore<M> implements ModelStore<M>, Closeable {
         return list == null || list.isEmpty() ? null : list.get(0);
     }
 
+    /**
+     * Borrow a pooled connection for work which doesn't fit {@link #query}.
+     */
+    protected <T> T withConnection(@NonNull final ThrowingFunction<Connection, T, SQLException> block) throws SQLException {
+        return pool.withConnection(pooled -> block.apply(pooled.getConnection()));
+    }
+
+    /**
+     * Calls the block for each row, reading through a cursor instead of buffering the results.
+     */
+    protected void queryEach(
+        @NonNull final String sql,
+        final ThrowingConsumer<PreparedStatement, SQLException> params,
+        @NonNull final ThrowingConsumer<ResultSet, SQLException> block
+    ) {
+        try (final Stream<Boolean> rows = streamQuery(sql, params, rs -> {
+            block.accept(rs);
+            return Boolean.TRUE;
+        }, null)) {
+            rows.forEach(row -> {
+            });
+        }
+    }
+
     @Override
     public Stream<M> stream() {
         throw new NotImplementedException();
     }
 
+    /**
+     * A lazy stream over the rows of the query, read through a server-side cursor {@link #fetchSize}
+     * rows at a time.  The stream holds a pooled connection, with autocommit off, until it is exhausted
+     * or closed, so close it when stopping early.  Each batch of rows goes through the optional
+     * batch block, which may run more queries: those share the cursor's connection.
+     */
+    protected <T> Stream<T> streamQuery(
+        @NonNull final String sql,
+        final ThrowingConsumer<PreparedStatement, SQLException> params,
+        @NonNull final ThrowingFunction<ResultSet, T, SQLException> block,
+        final ThrowingConsumer<List<T>, SQLException> batchBlock
+    ) {
+        final Cursor<T> cursor;
+        try {
+            cursor = new Cursor<>(pool.lease(), sql, params, block, batchBlock, fetchSize);
+        } catch (SQLException e) {
+            throw new RuntimeException(String.format("Could not query:\n%s", sql), e);
+        }
+        return StreamSupport.stream(cursor, false).onClose(cursor::close);
+    }
+
+
+    private static class Cursor<T> extends Spliterators.AbstractSpliterator<T> {
+        private final ThrowingConsumer<List<T>, SQLException> batchBlock;
+        private final ThrowingFunction<ResultSet, T, SQLException> block;
+        private final Deque<T> buffer = new ArrayDeque<>();
+        private boolean closed = false;
+        private final int fetchSize;
+        private final PGConnectionPool.Lease lease;
+        private final ResultSet resultSet;
+        private final String sql;
+        private final PreparedStatement statement;
+
+        private Cursor(
+            final PGConnectionPool.Lease lease,
+            final String sql,
+            final ThrowingConsumer<PreparedStatement, SQLException> params,
+            final ThrowingFunction<ResultSet, T, SQLException> block,
+            final ThrowingConsumer<List<T>, SQLException> batchBlock,
+            final int fetchSize
+        ) throws SQLException {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.lease = lease;
+            this.sql = sql;
+            this.block = block;
+            this.batchBlock = batchBlock;
+            this.fetchSize = fetchSize;
+            try {
+                final Connection db = lease.getPooled().getConnection();
+                db.setAutoCommit(false);
+                statement = db.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(fetchSize);
+                if (params != null) {
+                    params.accept(statement);
+                }
+                resultSet = statement.executeQuery();
+            } catch (SQLException | RuntimeException e) {
+                close();
+                throw e;
+            }
+        }
+
+        public synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            final Connection db = lease.getPooled().getConnection();
+            try {
+                if (resultSet != null) {
+                    resultSet.close();
+                }
+                if (statement != null) {
+                    statement.close();
+                }
+                db.commit();
+                db.setAutoCommit(true);
+            } catch (SQLException e) {
+                log.warn("Could not close cursor:\n{}", sql, e);
+                try {
+                    db.close();
+                } catch (SQLException ignored) {
+                    // The pool drops closed connections.
+                }
+            }
+            lease.close();
+        }
+
+        private void fill() throws SQLException {
+            lease.pinned(pooled -> {
+                final List<T> batch = new ArrayList<>(fetchSize);
+                while (batch.size() < fetchSize && resultSet.next()) {
+                    batch.add(block.apply(resultSet));
+                }
+                if (batchBlock != null && !batch.isEmpty()) {
+                    batchBlock.accept(batch);
+                }
+                buffer.addAll(batch);
+                return null;
+            });
+        }
+
+        @Override
+        public boolean tryAdvance(final Consumer<? super T> action) {
+            if (buffer.isEmpty() && !closed) {
+                try {
+                    fill();
+                } catch (SQLException e) {
+                    close();
+                    throw new RuntimeException(String.format("Could not read cursor:\n%s", sql), e);
+                }
+                if (buffer.isEmpty()) {
+                    close();
+                }
+            }
+            final T next = buffer.poll();
+            if (next == null) {
+                return false;
+            }
+            action.accept(next);
+            return true;
+        }
+    }
 }
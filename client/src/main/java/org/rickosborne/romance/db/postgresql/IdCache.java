@@ -0,0 +1,346 @@
+package org.rickosborne.romance.db.postgresql;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.rickosborne.romance.db.model.BookModel;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.rickosborne.romance.db.postgresql.BookWyrmPGBookStore.idFromAuthorTitle;
+import static org.rickosborne.romance.util.StringStuff.alphaOnly;
+
+/**
+ * BookWyrm database ids keyed by {@code author:title}, along with whether each is on a shelf.
+ * Keys, ids, and shelf flags live in parallel arrays of an open-addressed table, so each key is
+ * held once and ids aren't boxed.  The table holds the shelved edition for a key, else the first
+ * seen, and any other editions sharing the key are kept aside so lookups know it's ambiguous.  The cache is saved to disk with the latest {@code updated_date}
+ * it has seen, so a later run only needs the rows which changed since.  Safe to share between threads.
+ */
+@Slf4j
+public class IdCache {
+    public static final Path CACHE_PATH_DEFAULT = Path.of(".cache", "bookwyrm", "id-cache.tsv");
+    private static final int INITIAL_CAPACITY = 1024;
+    /**
+     * Marks a file which keeps every id per key.  Older files are read, but refetched in full.
+     */
+    private static final String FORMAT_LINE = "#format\t2";
+    private static final String MARK_PREFIX = "#since\t";
+
+    /**
+     * Read a saved cache, or start an empty one if there isn't one yet.
+     */
+    public static IdCache readFrom(@NonNull final Path path) {
+        final IdCache cache = new IdCache();
+        if (!path.toFile().isFile()) {
+            return cache;
+        }
+        boolean current = false;
+        try (final BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.equals(FORMAT_LINE)) {
+                    current = true;
+                    continue;
+                } else if (line.startsWith(MARK_PREFIX)) {
+                    cache.highWaterMark = OffsetDateTime.parse(line.substring(MARK_PREFIX.length()));
+                    continue;
+                }
+                final int idTab = line.indexOf('\t');
+                final int shelvedTab = line.indexOf('\t', idTab + 1);
+                if (idTab > 0 && shelvedTab > idTab) {
+                    final String key = line.substring(shelvedTab + 1);
+                    final int slot = cache.slotFor(key);
+                    final int dbId = Integer.parseInt(line, 0, idTab, 10);
+                    if (cache.dbIds[slot] == 0) {
+                        cache.dbIds[slot] = dbId;
+                        cache.shelved[slot] = line.charAt(idTab + 1) == '1';
+                    } else if (cache.dbIds[slot] != dbId) {
+                        cache.addOther(key, dbId);
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalArgumentException("Could not read ID cache: " + path, e);
+        }
+        if (!current) {
+            // Written before other editions were kept, so it may hide some.
+            cache.highWaterMark = null;
+        }
+        cache.changed = false;
+        log.debug("Read {} ids from {}", cache.count, path);
+        return cache;
+    }
+
+    private boolean changed = false;
+    @Getter
+    private int count = 0;
+    private int[] dbIds = new int[INITIAL_CAPACITY];
+    /**
+     * The latest {@code updated_date} of any row added, or null if the cache has never been filled.
+     */
+    @Getter
+    private OffsetDateTime highWaterMark;
+    private String[] keys = new String[INITIAL_CAPACITY];
+    /**
+     * Ids of editions sharing a key with the one in the table.  Rare, so they're boxed.
+     */
+    private final Map<String, Set<Integer>> otherIds = new HashMap<>();
+    /**
+     * Keys by their title part, built on the first {@link #resolve} after a key is added.
+     */
+    private NavigableMap<String, List<String>> keysByTitle;
+    private boolean[] shelved = new boolean[INITIAL_CAPACITY];
+
+    public synchronized void add(final int dbId, final String title, final String author, final int shelfCount) {
+        final String id = idFromAuthorTitle(author, title);
+        if (id == null) {
+            return;
+        }
+        final int slot = slotFor(id);
+        final int previous = dbIds[slot];
+        if (shelfCount > 0 || previous == 0) {
+            changed |= previous != dbId;
+            dbIds[slot] = dbId;
+            if (previous != 0 && previous != dbId) {
+                addOther(id, previous);
+            }
+            removeOther(id, dbId);
+        } else if (previous != dbId) {
+            addOther(id, dbId);
+        }
+        if (shelfCount > 0 && !shelved[slot]) {
+            shelved[slot] = true;
+            changed = true;
+        }
+    }
+
+    private void addOther(final String key, final int dbId) {
+        changed |= otherIds.computeIfAbsent(key, k -> new TreeSet<>()).add(dbId);
+    }
+
+    /**
+     * Move the high-water mark forward, if this is later.
+     */
+    public synchronized void advanceMark(final OffsetDateTime updated) {
+        if (updated != null && (highWaterMark == null || updated.isAfter(highWaterMark))) {
+            highWaterMark = updated;
+            changed = true;
+        }
+    }
+
+    public Integer findDbId(final BookModel book) {
+        return findDbId(getId(book));
+    }
+
+    public synchronized Integer findDbId(final String id) {
+        if (id == null) {
+            return null;
+        }
+        final int slot = slotOf(id);
+        return keys[slot] == null ? null : dbIds[slot];
+    }
+
+    public synchronized void forceId(@NonNull final String id, final int finalDbId) {
+        final int slot = slotFor(id);
+        if (dbIds[slot] != 0 && dbIds[slot] != finalDbId) {
+            addOther(id, dbIds[slot]);
+        }
+        removeOther(id, finalDbId);
+        dbIds[slot] = finalDbId;
+        changed = true;
+    }
+
+    public String getId(final BookModel book) {
+        return idFromAuthorTitle(book.getAuthorName(), book.getTitle());
+    }
+
+    private void grow() {
+        final String[] oldKeys = keys;
+        final int[] oldDbIds = dbIds;
+        final boolean[] oldShelved = shelved;
+        keys = new String[oldKeys.length * 2];
+        dbIds = new int[keys.length];
+        shelved = new boolean[keys.length];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                final int slot = slotOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                dbIds[slot] = oldDbIds[i];
+                shelved[slot] = oldShelved[i];
+            }
+        }
+    }
+
+    private NavigableMap<String, List<String>> indexByTitle() {
+        if (keysByTitle == null) {
+            keysByTitle = new TreeMap<>();
+            for (final String key : keys) {
+                if (key != null) {
+                    keysByTitle.computeIfAbsent(key.substring(key.indexOf(':') + 1), t -> new ArrayList<>(1)).add(key);
+                }
+            }
+        }
+        return keysByTitle;
+    }
+
+    public synchronized boolean isShelved(final BookModel bookModel) {
+        final String id = getId(bookModel);
+        if (id == null) {
+            return false;
+        }
+        final int slot = slotOf(id);
+        return keys[slot] != null && shelved[slot];
+    }
+
+    private void removeOther(final String key, final int dbId) {
+        final Set<Integer> others = otherIds.get(key);
+        if (others != null && others.remove(dbId)) {
+            changed = true;
+            if (others.isEmpty()) {
+                otherIds.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Find the one book whose normalized title is, or starts with, the given title, and which
+     * has an author matching any of the given names word-for-word in order, as the {@code LIKE}
+     * search would.  Null when there is no such book, or more than one, including several
+     * editions under one key, as only the query knows how those rank.
+     */
+    public synchronized Integer resolve(final String title, @NonNull final Collection<String> authorNames) {
+        final String alphaTitle = alphaOnly(title);
+        if (alphaTitle == null || alphaTitle.isBlank() || authorNames.isEmpty()) {
+            return null;
+        }
+        final List<String[]> authorWords = new ArrayList<>(authorNames.size());
+        for (final String authorName : authorNames) {
+            final String alphaAuthor = alphaOnly(authorName);
+            if (alphaAuthor != null && !alphaAuthor.isBlank()) {
+                authorWords.add(alphaAuthor.split(" "));
+            }
+        }
+        Integer found = null;
+        for (final Map.Entry<String, List<String>> entry : indexByTitle().tailMap(alphaTitle, true).entrySet()) {
+            final String candidate = entry.getKey();
+            if (!candidate.startsWith(alphaTitle)) {
+                break;
+            }
+            if (candidate.length() > alphaTitle.length() && candidate.charAt(alphaTitle.length()) != ' ') {
+                continue;
+            }
+            for (final String key : entry.getValue()) {
+                if (!anyAuthorMatches(key, authorWords)) {
+                    continue;
+                } else if (otherIds.containsKey(key)) {
+                    return null;
+                }
+                final int dbId = dbIds[slotOf(key)];
+                if (found == null) {
+                    found = dbId;
+                } else if (found != dbId) {
+                    return null;
+                }
+            }
+        }
+        return found;
+    }
+
+    private static boolean anyAuthorMatches(final String key, final List<String[]> authorWords) {
+        final int colon = key.indexOf(':');
+        for (final String[] words : authorWords) {
+            int at = 0;
+            boolean matched = true;
+            for (final String word : words) {
+                final int index = key.indexOf(word, at);
+                if (index < 0 || index + word.length() > colon) {
+                    matched = false;
+                    break;
+                }
+                at = index + word.length();
+            }
+            if (matched) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The slot holding the key, adding it with no id if it's new.
+     */
+    private int slotFor(final String key) {
+        int slot = slotOf(key);
+        if (keys[slot] == null) {
+            if ((count + 1) * 3 > keys.length * 2) {
+                grow();
+                slot = slotOf(key);
+            }
+            keys[slot] = key;
+            keysByTitle = null;
+            count++;
+        }
+        return slot;
+    }
+
+    /**
+     * The slot holding the key, or the empty slot where it would go.
+     */
+    private int slotOf(final String key) {
+        final int mask = keys.length - 1;
+        int slot = (key.hashCode() * 0x9E3779B9) >>> 7 & mask;
+        while (keys[slot] != null && !keys[slot].equals(key)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Save the cache if anything was added since it was read, replacing the file atomically.
+     */
+    public synchronized void writeIfChanged(@NonNull final Path path) {
+        if (!changed) {
+            return;
+        }
+        final Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(path.getParent());
+            try (final Writer writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
+                writer.write(FORMAT_LINE + "\n");
+                if (highWaterMark != null) {
+                    writer.write(MARK_PREFIX + highWaterMark + "\n");
+                }
+                for (int i = 0; i < keys.length; i++) {
+                    if (keys[i] != null && dbIds[i] != 0) {
+                        writer.write(dbIds[i] + "\t" + (shelved[i] ? '1' : '0') + "\t" + keys[i] + "\n");
+                        for (final int otherId : otherIds.getOrDefault(keys[i], Set.of())) {
+                            writer.write(otherId + "\t0\t" + keys[i] + "\n");
+                        }
+                    }
+                }
+            }
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not write ID cache: " + path, e);
+        }
+        changed = false;
+        log.debug("Wrote {} ids to {}", count, path);
+    }
+}
@@ -0,0 +1,252 @@
+package org.rickosborne.romance.db.postgresql;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.rickosborne.romance.client.bookwyrm.BookWyrmConfig;
+import org.rickosborne.romance.util.ThrowingFunction;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * A fixed-size pool of JDBC connections, each with its own cache of prepared statements.
+ * Connections are opened on demand, and a caller waits when all of them are busy.
+ * Safe to share between stores and threads.
+ */
+@Slf4j
+public class PGConnectionPool implements Closeable {
+    public static final int MAX_STATEMENTS = 64;
+
+    public static PGConnectionPool forConfig(@NonNull final BookWyrmConfig config) {
+        return new PGConnectionPool(config.getJdbcUrl(), config.getConnectionPoolSize());
+    }
+
+    private final List<PooledConnection> all = new ArrayList<>();
+    private boolean closed = false;
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final String jdbcUrl;
+    @Getter
+    private final int maxSize;
+    /**
+     * Connections being opened, which already count against {@link #maxSize}.
+     */
+    private int opening = 0;
+    /**
+     * A leased connection which {@link #withConnection} should reuse on this thread.
+     */
+    private final ThreadLocal<PooledConnection> pinned = new ThreadLocal<>();
+
+    public PGConnectionPool(
+        @NonNull final String jdbcUrl,
+        final int maxSize
+    ) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1: " + maxSize);
+        }
+        this.jdbcUrl = jdbcUrl;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * An idle connection, or a new one if there's room, or else wait for either.
+     * Waiters are woken whenever a connection comes back or a slot frees up.
+     */
+    private PooledConnection acquire() throws SQLException {
+        synchronized (this) {
+            while (true) {
+                if (closed) {
+                    throw new IllegalStateException("Pool is closed");
+                }
+                final PooledConnection available = idle.pollFirst();
+                if (available != null) {
+                    return available;
+                }
+                if (all.size() + opening < maxSize) {
+                    opening++;
+                    log.debug("Connecting {} of {}", all.size() + opening, maxSize);
+                    break;
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted waiting for a connection", e);
+                }
+            }
+        }
+        final PooledConnection created;
+        try {
+            final Properties props = new Properties();
+            props.setProperty("ssl", "false");
+            created = new PooledConnection(DriverManager.getConnection(jdbcUrl, props));
+        } catch (SQLException | RuntimeException e) {
+            synchronized (this) {
+                opening--;
+                notifyAll();
+            }
+            throw e;
+        }
+        synchronized (this) {
+            opening--;
+            if (!closed) {
+                all.add(created);
+                return created;
+            }
+            notifyAll();
+        }
+        created.close();
+        throw new IllegalStateException("Pool is closed");
+    }
+
+    @Override
+    public void close() {
+        final List<PooledConnection> closing;
+        synchronized (this) {
+            closed = true;
+            closing = new ArrayList<>(all);
+            all.clear();
+            idle.clear();
+            notifyAll();
+        }
+        for (final PooledConnection pooled : closing) {
+            pooled.close();
+        }
+    }
+
+    /**
+     * Take a connection out of the pool until the lease is closed, such as for a cursor
+     * which outlives any one call.
+     */
+    public Lease lease() throws SQLException {
+        return new Lease(acquire());
+    }
+
+    private void release(final PooledConnection pooled) {
+        boolean usable;
+        try {
+            usable = !pooled.connection.isClosed();
+        } catch (SQLException e) {
+            usable = false;
+        }
+        synchronized (this) {
+            // Either way a waiter can go on: with this connection, or with the slot it held.
+            notifyAll();
+            if (usable && !closed) {
+                idle.addLast(pooled);
+                return;
+            }
+            all.remove(pooled);
+        }
+        pooled.close();
+    }
+
+    /**
+     * Borrow a connection for the duration of the block.
+     */
+    public <T> T withConnection(@NonNull final ThrowingFunction<PooledConnection, T, SQLException> block) throws SQLException {
+        final PooledConnection leased = pinned.get();
+        if (leased != null) {
+            return block.apply(leased);
+        }
+        final PooledConnection pooled = acquire();
+        try {
+            return block.apply(pooled);
+        } finally {
+            release(pooled);
+        }
+    }
+
+    public class Lease implements AutoCloseable {
+        private boolean closed = false;
+        @Getter
+        private final PooledConnection pooled;
+
+        private Lease(@NonNull final PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (!closed) {
+                closed = true;
+                release(pooled);
+            }
+        }
+
+        /**
+         * Run the block with every {@link #withConnection} call on this thread using the leased connection,
+         * so work done while reading a cursor joins its transaction instead of waiting for another connection.
+         */
+        public <T> T pinned(@NonNull final ThrowingFunction<PooledConnection, T, SQLException> block) throws SQLException {
+            final PooledConnection previous = pinned.get();
+            pinned.set(pooled);
+            try {
+                return block.apply(pooled);
+            } finally {
+                if (previous == null) {
+                    pinned.remove();
+                } else {
+                    pinned.set(previous);
+                }
+            }
+        }
+    }
+
+    public static class PooledConnection {
+        @Getter
+        private final Connection connection;
+        /**
+         * Prepared statements by SQL, closing the least recently used past {@link #MAX_STATEMENTS},
+         * as queries built per author count would otherwise pile up.
+         */
+        private final Map<String, PreparedStatement> statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= MAX_STATEMENTS) {
+                    return false;
+                }
+                try {
+                    eldest.getValue().close();
+                } catch (SQLException e) {
+                    log.debug("Could not close statement: {}", e.getMessage());
+                }
+                return true;
+            }
+        };
+
+        private PooledConnection(@NonNull final Connection connection) {
+            this.connection = connection;
+        }
+
+        private void close() {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                log.warn("Could not close connection", e);
+            }
+        }
+
+        /**
+         * The statement for this SQL, prepared once per connection.
+         */
+        public PreparedStatement prepare(@NonNull final String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null || statement.isClosed()) {
+                statement = connection.prepareStatement(sql);
+                statements.put(sql, statement);
+            }
+            return statement;
+        }
+    }
+}
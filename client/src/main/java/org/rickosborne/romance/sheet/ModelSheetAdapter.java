@@ -4,7 +4,7 @@ import lombok.NonNull;
 import org.rickosborne.romance.NamingConvention;
 import org.rickosborne.romance.db.DbModel;
 import org.rickosborne.romance.db.Diff;
-import org.rickosborne.romance.db.SchemaDiff;
+import org.rickosborne.romance.db.DiffPlan;
 import org.rickosborne.romance.db.model.SchemaAttribute;
 import org.rickosborne.romance.util.ModelSetter;
 
@@ -63,7 +63,7 @@ public interface ModelSheetAdapter<M> extends ModelSetter<M> {
         final Predicate<SchemaAttribute<M, ?>> attributePredicate
     ) {
         final Map<SchemaAttribute<M, ?>, ModelSetter<M>> sheetFields = getSheetFields();
-        return changesForDiff(new SchemaDiff().diffModels(sheetRecord, existingRecord), attributePredicate, sheetFields);
+        return changesForDiff(DiffPlan.forModelType(getModelType()).diff(sheetRecord, existingRecord), attributePredicate, sheetFields);
     }
 
     DbModel getDbModel();
@@ -36,6 +36,7 @@ import org.rickosborne.romance.db.sheet.SheetStoreFactory;
 import org.rickosborne.romance.sheet.AdapterFactory;
 import picocli.CommandLine;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.net.URL;
 import java.nio.file.Path;
@@ -45,7 +46,9 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
 import static org.rickosborne.romance.util.AuthorMerger.bookWithAuthorLikeFilter;
@@ -58,7 +61,7 @@ import static org.rickosborne.romance.util.StringStuff.fuzzyMatch;
 @Slf4j
 @Getter
 @RequiredArgsConstructor
-public class BookBot {
+public class BookBot implements Closeable {
     @Getter(lazy = true, value = AccessLevel.PROTECTED)
     private final AdapterFactory adapterFactory = new AdapterFactory();
     @Getter(lazy = true)
@@ -85,10 +88,13 @@ public class BookBot {
     private final Path cookieStorePath;
     private final Path dbPath;
     @Getter(lazy = true)
+    private final BookEnricher enricher = new BookEnricher(this);
+    @Getter(lazy = true)
     private final GoodreadsHtml goodreadsHtml = new GoodreadsHtml(getCachePath());
     @Getter(lazy = true)
     private final GoodreadsService goodreadsService = GoodreadsService.build();
     private final String googleUserId;
+    private final boolean indexedJsonStore;
     @Getter(value = AccessLevel.PROTECTED, lazy = true)
     private final JsonCookieStore jsonCookieStore = Once.supply(() -> {
         final Path cookieStorePath = getCookieStorePath();
@@ -127,9 +133,11 @@ public class BookBot {
     private final StoryGraphHtml storyGraphHtml = buildStoryGraphHtml();
     @Getter(lazy = true)
     private final List<BookModel> tabsAudiobooks = fetchAudiobooks();
+    @Getter(lazy = true)
+    private final BookMatchIndex tabsAudiobooksIndex = BookMatchIndex.of(getTabsAudiobooks());
 
     private JsonStoreFactory buildJsonStoreFactory() {
-        return new JsonStoreFactory(getDbPath(), getNamingConvention());
+        return new JsonStoreFactory(getDbPath(), getNamingConvention(), isIndexedJsonStore());
     }
 
     private SheetStoreFactory buildSheetStoreFactory() {
@@ -181,35 +189,31 @@ public class BookBot {
         return merged;
     }
 
+    /**
+     * Let go of the threads used to enrich books.
+     */
+    @Override
+    public void close() {
+        getEnricher().close();
+    }
+
+    /**
+     * Every source, looked up concurrently where they don't depend on each other.  See {@link BookEnricher}.
+     */
     public BookModel extendAll(
         @NonNull final BookModel original
     ) {
-        BookModel model = original;
-        model = extendWithAudiobookStorePurchase(model);
-        model = extendWithJsonStored(model);
-        model = extendWithAudiobookStoreBookInformation(model);
-        model = extendWithAudiobookStoreSuggestion(model);
-        model = extendWithAudiobookStoreDetails(model);
-        model = extendWithGoodReadsAutoComplete(model);
-        model = extendWithGoodReadsDetails(model);
-        if (model.getDatePublish() == null && model.getAudiobookStoreUrl() == null && model.getAuthorName() != null) {
-            AuthorModel authorLike = AuthorModel.builder().name(model.getAuthorName()).build();
-            authorLike = AuthorMerger.merge(authorLike, getAuthorStore().findLike(authorLike));
-            authorLike = AuthorMerger.merge(authorLike, getAudiobookStoreSuggestService().findAuthorLike(model.getAuthorName()));
-            final List<BookModel> authorBooks = getAudiobookStoreHtml().getBooksForAuthor(authorLike);
-            final List<BookModel> maybeMatches = authorBooks.stream()
-                .filter(bookLikeFilter(original))
-                .collect(Collectors.toList());
-            if (maybeMatches.size() == 1) {
-                model = mergeBooks(model, extendWithAudiobookStoreDetails(maybeMatches.get(0)));
-                getAuthorStore().saveIfChanged(authorLike);
-            }
-        }
-        // model = extendWithStoryGraphSearch(model);
-        if (getBookStore().idFromModel(model) != null) {
-            getBookStore().saveIfChanged(model);
-        }
-        return model;
+        return getEnricher().enrich(original);
+    }
+
+    /**
+     * As {@link #extendAll(BookModel)} for many books at once, in the same order.
+     */
+    public List<BookModel> extendAll(
+        @NonNull final List<BookModel> originals,
+        final Consumer<BookModel> onEach
+    ) {
+        return getEnricher().enrichAll(originals, onEach);
     }
 
     public BookModel extendWithAudiobookStoreBookInformation(
@@ -232,11 +236,7 @@ public class BookBot {
     public BookModel extendWithAudiobookStorePurchase(
         @NonNull final BookModel original
     ) {
-        final List<BookModel> audiobooks = getTabsAudiobooks();
-        final BookModel purchased = audiobooks.stream()
-            .filter(bookLikeFilter(original))
-            .findAny()
-            .orElse(null);
+        final BookModel purchased = getTabsAudiobooksIndex().findAnyLike(original);
         return mergeBooks(original, purchased);
     }
 
@@ -247,20 +247,7 @@ public class BookBot {
         if (originalUrl != null) {
             return original;
         }
-        final String originalSku = original.getAudiobookStoreSku();
-        final BookModel suggestion = getAudiobookStoreSuggestService().findBookLike(original, book -> {
-            final BookModel info = fetchAudiobookStoreBookInformation(book);
-            if (info == null) {
-                return null;
-            }
-            if ((originalSku == null || originalSku.equals(info.getAudiobookStoreSku()))
-                && fuzzyListMatch(original.getAuthorName(), info.getAuthorName())
-                && fuzzyMatch(original.getTitle(), info.getTitle())
-            ) {
-                return mergeBooks(book, info);
-            }
-            return null;
-        });
+        final BookModel suggestion = fetchAudiobookStoreSuggestion(original);
         if (suggestion != null) {
             return mergeBooks(original, suggestion);
         }
@@ -367,6 +354,34 @@ public class BookBot {
         return info2 == null ? null : modelFromBookInformation(info2);
     }
 
+    public BookModel fetchAudiobookStoreSuggestion(@NonNull final BookModel original) {
+        return fetchAudiobookStoreSuggestion(original, this::fetchAudiobookStoreBookInformation);
+    }
+
+    /**
+     * The first TABS suggestion whose book information matches the book's SKU, author, and title,
+     * merged with that information, or null.  Each suggestion's information comes from {@code fetchInformation}.
+     */
+    public BookModel fetchAudiobookStoreSuggestion(
+        @NonNull final BookModel original,
+        @NonNull final UnaryOperator<BookModel> fetchInformation
+    ) {
+        final String originalSku = original.getAudiobookStoreSku();
+        return getAudiobookStoreSuggestService().findBookLike(original, book -> {
+            final BookModel info = fetchInformation.apply(book);
+            if (info == null) {
+                return null;
+            }
+            if ((originalSku == null || originalSku.equals(info.getAudiobookStoreSku()))
+                && fuzzyListMatch(original.getAuthorName(), info.getAuthorName())
+                && fuzzyMatch(original.getTitle(), info.getTitle())
+            ) {
+                return mergeBooks(book, info);
+            }
+            return null;
+        });
+    }
+
     public List<BookModel> fetchAudiobooks() {
         return fetchAudiobooksWithInfoFilter((_info) -> true);
     }
@@ -401,11 +416,10 @@ public class BookBot {
         final BookModel original,
         final BookModel... others
     ) {
-        BookModel book = original;
-        for (final BookModel other : others) {
-            book = getBookSchema().mergeModels(book, other);
-        }
-        return book;
+        final BookModel[] books = new BookModel[others.length + 1];
+        books[0] = original;
+        System.arraycopy(others, 0, books, 1, others.length);
+        return getBookSchema().mergeModels(books);
     }
 
     private BookModel.MainChar targetMC(
@@ -0,0 +1,268 @@
+package org.rickosborne.romance.util;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.rickosborne.romance.db.model.AuthorModel;
+import org.rickosborne.romance.db.model.BookModel;
+
+import java.io.Closeable;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.rickosborne.romance.util.BookMerger.bookLikeFilter;
+
+/**
+ * Runs {@link BookBot#extendAll(BookModel)} as a graph of lookups instead of a chain.
+ * After the local purchase and JSON lookups, the TABS lookups (book information, then a
+ * suggestion if there's still no store URL, then the store page) and the Goodreads lookups
+ * (autocomplete if there's no Goodreads URL, then the book page) run side by side, as each
+ * only needs what the other doesn't supply.  Goodreads waits for TABS when the book has no
+ * title or author to search with yet, and is looked up again if TABS changes the title, author,
+ * or Goodreads URL it searched with, as the sequential chain would have used those.  Many books are enriched at once on virtual
+ * threads, with each source capped at a few requests in flight, on top of the per-host
+ * rates in {@link org.rickosborne.romance.client.html.HostRateLimiter}.
+ * <p>
+ * Each lookup returns what it found rather than a merged book, and those finds are merged
+ * in the same order as the sequential steps, so the result doesn't depend on which lookup
+ * finishes first.  The JSON stores are only touched under one lock.  {@link #close()} the
+ * enricher, or the {@link BookBot} which owns it, to let go of its threads.
+ */
+@Slf4j
+public class BookEnricher implements Closeable {
+    public static final int DEFAULT_MAX_IN_FLIGHT = 16;
+
+    private final BookBot bot;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    /**
+     * Books being enriched at once.
+     */
+    private final Semaphore inFlight;
+    private final Map<Source, Semaphore> limits = new EnumMap<>(Source.class);
+    private final Object storeLock = new Object();
+
+    public BookEnricher(@NonNull final BookBot bot) {
+        this(bot, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    public BookEnricher(@NonNull final BookBot bot, final int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("Need at least one book in flight: " + maxInFlight);
+        }
+        this.bot = bot;
+        this.inFlight = new Semaphore(maxInFlight, true);
+        for (final Source source : Source.values()) {
+            limits.put(source, new Semaphore(source.getMaxConcurrent(), true));
+        }
+    }
+
+    /**
+     * Whether the Goodreads lookups would start from the same title, author, and URL for both.
+     */
+    private static boolean sameGoodreadsSearch(final BookModel a, final BookModel b) {
+        return Objects.equals(a.getTitle(), b.getTitle())
+            && Objects.equals(a.getAuthorName(), b.getAuthorName())
+            && Objects.equals(a.getGoodreadsUrl(), b.getGoodreadsUrl());
+    }
+
+    private static RuntimeException unwrap(final CompletionException e) {
+        return e.getCause() instanceof RuntimeException runtime ? runtime : e;
+    }
+
+    /**
+     * Waits for lookups already running, then stops the enricher's threads.
+     */
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+    /**
+     * Enrich one book, waiting for the result.  Runtime failures of any lookup are rethrown as they were.
+     */
+    public BookModel enrich(@NonNull final BookModel original) {
+        try {
+            return enrichAsync(original).join();
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * Enrich the books concurrently, returning them in the same order.  The callback, if any,
+     * sees each book as it finishes, on whichever thread finished it.
+     */
+    public List<BookModel> enrichAll(
+        @NonNull final List<BookModel> books,
+        final Consumer<BookModel> onEach
+    ) {
+        final List<CompletableFuture<BookModel>> futures = new ArrayList<>(books.size());
+        for (final BookModel book : books) {
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while enriching books", e);
+            }
+            futures.add(enrichAsync(book).whenComplete((done, error) -> {
+                inFlight.release();
+                if (error == null && onEach != null) {
+                    onEach.accept(done);
+                }
+            }));
+        }
+        try {
+            return futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    public CompletableFuture<BookModel> enrichAsync(@NonNull final BookModel original) {
+        return CompletableFuture
+            .supplyAsync(() -> {
+                synchronized (storeLock) {
+                    return bot.extendWithJsonStored(bot.extendWithAudiobookStorePurchase(original));
+                }
+            }, executor)
+            .thenCompose(local -> {
+                final CompletableFuture<Finds> tabs = tabsFinds(local);
+                final boolean canSearch = local.getTitle() != null && local.getAuthorName() != null;
+                final CompletableFuture<Finds> early = canSearch ? goodreadsFinds(local) : null;
+                final CompletableFuture<Finds> goodreads = tabs.thenCompose(t -> early != null && sameGoodreadsSearch(local, t.model)
+                    ? early
+                    : goodreadsFinds(t.model));
+                return tabs.thenCombine(goodreads, (t, g) -> {
+                    final List<BookModel> finds = new ArrayList<>(t.found);
+                    finds.addAll(g.found);
+                    return bot.mergeBooks(local, finds.toArray(BookModel[]::new));
+                });
+            })
+            .thenApplyAsync(model -> finish(original, model), executor);
+    }
+
+    /**
+     * The store pages of the author's books, for a book no source could place, then save it.
+     */
+    private BookModel finish(final BookModel original, final BookModel found) {
+        BookModel model = found;
+        if (model.getDatePublish() == null && model.getAudiobookStoreUrl() == null && model.getAuthorName() != null) {
+            AuthorModel authorLike = AuthorModel.builder().name(model.getAuthorName()).build();
+            synchronized (storeLock) {
+                authorLike = AuthorMerger.merge(authorLike, bot.getAuthorStore().findLike(authorLike));
+            }
+            final String authorName = model.getAuthorName();
+            authorLike = AuthorMerger.merge(authorLike, limited(Source.TabsSuggest, () -> bot.getAudiobookStoreSuggestService().findAuthorLike(authorName)));
+            final AuthorModel author = authorLike;
+            final List<BookModel> authorBooks = limited(Source.TabsHtml, () -> bot.getAudiobookStoreHtml().getBooksForAuthor(author));
+            final List<BookModel> maybeMatches = authorBooks.stream()
+                .filter(bookLikeFilter(original))
+                .collect(Collectors.toList());
+            if (maybeMatches.size() == 1) {
+                final BookModel match = maybeMatches.get(0);
+                final URL storeUrl = match.getAudiobookStoreUrl();
+                final BookModel storeBook = storeUrl == null ? null : limited(Source.TabsHtml, () -> bot.getAudiobookStoreHtml().getBookModelFromBook(storeUrl));
+                model = bot.mergeBooks(model, bot.mergeBooks(match, storeBook));
+                synchronized (storeLock) {
+                    bot.getAuthorStore().saveIfChanged(authorLike);
+                }
+            }
+        }
+        synchronized (storeLock) {
+            if (bot.getBookStore().idFromModel(model) != null) {
+                bot.getBookStore().saveIfChanged(model);
+            }
+        }
+        return model;
+    }
+
+    private CompletableFuture<Finds> goodreadsFinds(final BookModel start) {
+        return CompletableFuture.supplyAsync(() -> {
+            final Finds finds = new Finds(start);
+            if (start.getGoodreadsUrl() == null) {
+                finds.add(limited(Source.GoodreadsApi, () -> bot.getGoodreadsService().findBook(start.getTitle(), start.getAuthorName())));
+            }
+            final URL grUrl = finds.model.getGoodreadsUrl();
+            if (grUrl != null) {
+                finds.add(limited(Source.GoodreadsHtml, () -> bot.getGoodreadsHtml().getBookModel(grUrl)));
+            }
+            return finds;
+        }, executor);
+    }
+
+    private <T> T limited(final Source source, final Supplier<T> lookup) {
+        final Semaphore limit = limits.get(source);
+        try {
+            limit.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for " + source, e);
+        }
+        try {
+            return lookup.get();
+        } finally {
+            limit.release();
+        }
+    }
+
+    private CompletableFuture<Finds> tabsFinds(final BookModel start) {
+        return CompletableFuture.supplyAsync(() -> {
+            final Finds finds = new Finds(start);
+            finds.add(limited(Source.TabsApi, () -> bot.fetchAudiobookStoreBookInformation(start)));
+            if (finds.model.getAudiobookStoreUrl() == null) {
+                final BookModel suggestFor = finds.model;
+                finds.add(limited(Source.TabsSuggest, () -> bot.fetchAudiobookStoreSuggestion(suggestFor,
+                    book -> limited(Source.TabsApi, () -> bot.fetchAudiobookStoreBookInformation(book)))));
+            }
+            final URL storeUrl = finds.model.getAudiobookStoreUrl();
+            if (storeUrl != null) {
+                finds.add(limited(Source.TabsHtml, () -> bot.getAudiobookStoreHtml().getBookModelFromBook(storeUrl)));
+            }
+            return finds;
+        }, executor);
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public enum Source {
+        GoodreadsApi(1),
+        GoodreadsHtml(2),
+        TabsApi(4),
+        TabsHtml(2),
+        TabsSuggest(1),
+        ;
+        private final int maxConcurrent;
+    }
+
+    /**
+     * What one chain of lookups found, in order, and the book as it stood after each.
+     */
+    private class Finds {
+        private final List<BookModel> found = new ArrayList<>();
+        private BookModel model;
+
+        Finds(final BookModel start) {
+            this.model = start;
+        }
+
+        void add(final BookModel find) {
+            if (find != null) {
+                found.add(find);
+                model = bot.mergeBooks(model, find);
+            }
+        }
+    }
+}
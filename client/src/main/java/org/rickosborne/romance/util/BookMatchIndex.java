@@ -0,0 +1,177 @@
+package org.rickosborne.romance.util;
+
+import lombok.NonNull;
+import org.rickosborne.romance.db.model.BookModel;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.rickosborne.romance.util.StringStuff.alphaOnly;
+import static org.rickosborne.romance.util.StringStuff.nonBlank;
+
+/**
+ * Answers the same questions as {@link BookMerger#bookLikeFilter(BookModel)} and
+ * {@link AuthorMerger#bookWithAuthorLikeFilter}, but with hash lookups instead of a scan.
+ * Results come back in the order the books were added, just as filtering the source list would.
+ */
+public class BookMatchIndex {
+    public static BookMatchIndex of(@NonNull final Collection<BookModel> books) {
+        return of(books.stream());
+    }
+
+    public static BookMatchIndex of(@NonNull final Stream<BookModel> books) {
+        final BookMatchIndex index = new BookMatchIndex();
+        books.forEachOrdered(index::add);
+        return index;
+    }
+
+    private static List<FuzzyKey> authorKeys(final String authorName) {
+        if (authorName == null) {
+            return Collections.emptyList();
+        }
+        final List<FuzzyKey> keys = new ArrayList<>();
+        for (final String item : authorName.split(",")) {
+            if (nonBlank(item)) {
+                keys.add(FuzzyKey.of(item));
+            }
+        }
+        return keys;
+    }
+
+    private final FuzzyKeyIndex authors = new FuzzyKeyIndex();
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<BookModel, Integer> positions = new IdentityHashMap<>();
+    private final FuzzyKeyIndex titles = new FuzzyKeyIndex();
+
+    public void add(final BookModel book) {
+        if (book == null) {
+            return;
+        }
+        final int position = entries.size();
+        final Entry entry = new Entry(book, authorKeys(book.getAuthorName()));
+        entries.add(entry);
+        positions.put(book, position);
+        titles.add(book.getTitle(), position);
+        authors.add(book.getAuthorName(), position);
+    }
+
+    public BookModel findAnyLike(@NonNull final BookModel like) {
+        final List<BookModel> found = findLike(like);
+        return found.isEmpty() ? null : found.getFirst();
+    }
+
+    public List<BookModel> findLike(@NonNull final BookModel like) {
+        final List<FuzzyKey> likeAuthors = authorKeys(like.getAuthorName());
+        if (likeAuthors.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return titles.positionsLike(like.getTitle()).stream()
+            .map(entries::get)
+            .filter(e -> e != null && e.authorMatches(likeAuthors))
+            .map(Entry::book)
+            .collect(Collectors.toList());
+    }
+
+    public List<BookModel> findWithAuthorLike(final String authorName) {
+        return authors.positionsLike(authorName).stream()
+            .map(entries::get)
+            .filter(Objects::nonNull)
+            .map(Entry::book)
+            .collect(Collectors.toList());
+    }
+
+    public boolean remove(final BookModel book) {
+        final Integer position = positions.remove(book);
+        if (position == null) {
+            return false;
+        }
+        entries.set(position, null);
+        return true;
+    }
+
+    public void replace(final BookModel before, final BookModel after) {
+        remove(before);
+        add(after);
+    }
+
+    public int size() {
+        return positions.size();
+    }
+
+    private record Entry(BookModel book, List<FuzzyKey> authorKeys) {
+        boolean authorMatches(final List<FuzzyKey> others) {
+            for (final FuzzyKey mine : authorKeys) {
+                for (final FuzzyKey other : others) {
+                    if (mine.matches(other)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * The parts of {@link StringStuff#fuzzyMatch} which only depend on one side.
+     */
+    private record FuzzyKey(String raw, String key, boolean subtitled) {
+        static FuzzyKey of(@NonNull final String raw) {
+            return new FuzzyKey(raw, alphaOnly(raw), raw.contains(":") || raw.contains(","));
+        }
+
+        boolean matches(final FuzzyKey other) {
+            return raw.equals(other.raw)
+                || key.equals(other.key)
+                || (subtitled && key.startsWith(other.key))
+                || (other.subtitled && other.key.startsWith(key));
+        }
+    }
+
+    private static class FuzzyKeyIndex {
+        private final Map<String, List<Integer>> exact = new HashMap<>();
+        /**
+         * Every prefix of every subtitled key, so "Title: Subtitle" is found by "Title".
+         */
+        private final Map<String, List<Integer>> subtitledPrefixes = new HashMap<>();
+
+        void add(final String raw, final int position) {
+            if (raw == null) {
+                return;
+            }
+            final FuzzyKey fuzzyKey = FuzzyKey.of(raw);
+            final String key = fuzzyKey.key();
+            exact.computeIfAbsent(key, k -> new ArrayList<>(1)).add(position);
+            if (fuzzyKey.subtitled()) {
+                for (int length = 0; length <= key.length(); length++) {
+                    subtitledPrefixes.computeIfAbsent(key.substring(0, length), k -> new ArrayList<>(1)).add(position);
+                }
+            }
+        }
+
+        TreeSet<Integer> positionsLike(final String raw) {
+            final TreeSet<Integer> found = new TreeSet<>();
+            if (raw == null) {
+                return found;
+            }
+            final FuzzyKey fuzzyKey = FuzzyKey.of(raw);
+            final String key = fuzzyKey.key();
+            found.addAll(exact.getOrDefault(key, Collections.emptyList()));
+            found.addAll(subtitledPrefixes.getOrDefault(key, Collections.emptyList()));
+            if (fuzzyKey.subtitled()) {
+                for (int length = 0; length < key.length(); length++) {
+                    found.addAll(exact.getOrDefault(key.substring(0, length), Collections.emptyList()));
+                }
+            }
+            return found;
+        }
+    }
+}
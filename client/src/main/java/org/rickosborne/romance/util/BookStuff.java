@@ -13,13 +13,11 @@ public class BookStuff {
         if (author == null) {
             return null;
         }
-        String name = author
-            .replaceAll("\\.", " ")
-            .replaceAll("\\s+", " ");
+        String name = TextNormalizer.collapseDotsAndSpaces(author);
         final Matcher matcher = LEADING_INITIALS_PATTERN.matcher(name);
         if (matcher.find()) {
             final String start = matcher.group(1);
-            final String fixed = start.replaceAll("\\s+", "").toUpperCase();
+            final String fixed = start.replace(" ", "").toUpperCase();
             name = name.replace(start.trim(), fixed);
         }
         return titleCase(name);
@@ -29,13 +27,7 @@ public class BookStuff {
         if (title == null) {
             return null;
         }
-        return titleCase(title
-            .replace(" (Unabridged)", "")
-            .replaceAll("[.,:/?]+", " ")
-            .replaceAll("\\s+-+\\s+", " ")
-            .replaceAll("\\s+", " ")
-            .replaceAll("(?i)\\s+\\([^)]*(?:unabridged|book\\s+\\d)[^)]*\\)", "")
-            .replaceAll("(?i)\\s+audiobook$", "")
-            .trim());
+        final String spaced = TextNormalizer.collapseTitlePunctuation(title.replace(" (Unabridged)", ""));
+        return titleCase(TextNormalizer.withoutAudiobookSuffix(TextNormalizer.withoutEdition(spaced)).trim());
     }
 }
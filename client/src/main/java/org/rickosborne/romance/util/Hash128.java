@@ -0,0 +1,177 @@
+package org.rickosborne.romance.util;
+
+import java.net.URL;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Streaming MurmurHash3 (x64, 128-bit) over typed values, for change detection rather than security.
+ * Values are fed as tagged 64-bit words, so {@code "1"} and {@code 1} hash differently
+ * and strings never need to be encoded to bytes first.
+ */
+public class Hash128 {
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+    private static final long TAG_BOOLEAN = 1;
+    private static final long TAG_COLLECTION = 2;
+    private static final long TAG_DATE = 3;
+    private static final long TAG_DOUBLE = 4;
+    private static final long TAG_LONG = 5;
+    private static final long TAG_MAP = 6;
+    private static final long TAG_NULL = 7;
+    private static final long TAG_STRING = 8;
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    private long h1;
+    private long h2;
+    private boolean hasPending = false;
+    private long length = 0;
+    private long pending;
+
+    public Hash128() {
+        this(0);
+    }
+
+    public Hash128(final long seed) {
+        h1 = seed;
+        h2 = seed;
+    }
+
+    private void mixBlock(long k1, long k2) {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        k1 *= C2;
+        h1 ^= k1;
+        h1 = Long.rotateLeft(h1, 27);
+        h1 += h2;
+        h1 = h1 * 5 + 0x52dce729;
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        k2 *= C1;
+        h2 ^= k2;
+        h2 = Long.rotateLeft(h2, 31);
+        h2 += h1;
+        h2 = h2 * 5 + 0x38495ab5;
+    }
+
+    public Hash128 putBoolean(final boolean value) {
+        return putWord(TAG_BOOLEAN).putWord(value ? 1 : 0);
+    }
+
+    public Hash128 putDouble(final double value) {
+        return putWord(TAG_DOUBLE).putWord(Double.doubleToLongBits(value));
+    }
+
+    public Hash128 putLong(final long value) {
+        return putWord(TAG_LONG).putWord(value);
+    }
+
+    public Hash128 putNull() {
+        return putWord(TAG_NULL);
+    }
+
+    public Hash128 putString(final CharSequence value) {
+        if (value == null) {
+            return putNull();
+        }
+        final int count = value.length();
+        putWord(TAG_STRING).putWord(count);
+        long word = 0;
+        int packed = 0;
+        for (int i = 0; i < count; i++) {
+            word = (word << 16) | value.charAt(i);
+            if (++packed == 4) {
+                putWord(word);
+                word = 0;
+                packed = 0;
+            }
+        }
+        if (packed > 0) {
+            putWord(word);
+        }
+        return this;
+    }
+
+    /**
+     * Feeds strings, numbers, booleans, dates, URLs, enums, collections, and maps by value.
+     * Anything else falls back to its {@code toString()}.
+     */
+    public Hash128 putValue(final Object value) {
+        if (value == null) {
+            return putNull();
+        } else if (value instanceof CharSequence s) {
+            return putString(s);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return putLong(((Number) value).longValue());
+        } else if (value instanceof Number n) {
+            return putDouble(n.doubleValue());
+        } else if (value instanceof Boolean b) {
+            return putBoolean(b);
+        } else if (value instanceof LocalDate date) {
+            return putWord(TAG_DATE).putWord(date.toEpochDay());
+        } else if (value instanceof URL url) {
+            return putString(url.toExternalForm());
+        } else if (value instanceof Enum<?> e) {
+            return putString(e.name());
+        } else if (value instanceof Collection<?> items) {
+            putWord(TAG_COLLECTION).putWord(items.size());
+            for (final Object item : items) {
+                putValue(item);
+            }
+            return this;
+        } else if (value instanceof Map<?, ?> map) {
+            putWord(TAG_MAP).putWord(map.size());
+            for (final Map.Entry<?, ?> entry : map.entrySet()) {
+                putValue(entry.getKey());
+                putValue(entry.getValue());
+            }
+            return this;
+        }
+        return putString(value.toString());
+    }
+
+    private Hash128 putWord(final long word) {
+        if (hasPending) {
+            mixBlock(pending, word);
+            hasPending = false;
+        } else {
+            pending = word;
+            hasPending = true;
+        }
+        length += 8;
+        return this;
+    }
+
+    /**
+     * The hash of everything fed so far, as 32 hex digits.  Does not change the running state.
+     */
+    public String toHex() {
+        long a = h1;
+        long b = h2;
+        if (hasPending) {
+            long k1 = pending;
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            a ^= k1;
+        }
+        a ^= length;
+        b ^= length;
+        a += b;
+        b += a;
+        a = fmix64(a);
+        b = fmix64(b);
+        a += b;
+        b += a;
+        return String.format("%016x%016x", a, b);
+    }
+}
@@ -48,15 +48,7 @@ public class StringStuff {
     public static final List<String> WHITESPACE = List.of(" ", "\t", "\r", "\n");
 
     public static String alphaOnly(final String s) {
-        if (s == null) {
-            return null;
-        }
-        return s
-            .toLowerCase()
-            .replaceAll(QUOTE_CHAR_CLASS, "")
-            .replaceAll("\\b(a|an|the)\\b", "")
-            .replaceAll("[^a-z\\d]+", " ")
-            .trim();
+        return TextNormalizer.alphaOnly(s);
     }
 
     public static Pattern asPattern(final String text) {
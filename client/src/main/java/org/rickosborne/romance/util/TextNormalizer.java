@@ -0,0 +1,273 @@
+package org.rickosborne.romance.util;
+
+import lombok.NonNull;
+
+import java.util.regex.Pattern;
+
+/**
+ * Single-pass versions of the regex chains used on every match and store path.
+ * Each method produces exactly what its regex equivalent (noted on the method) would.
+ */
+public class TextNormalizer {
+    public static final Pattern TITLE_EDITION_PATTERN = Pattern.compile("(?i)\\s+\\([^)]*(?:unabridged|book\\s+\\d)[^)]*\\)");
+    private static final Pattern ARTICLE_PATTERN = Pattern.compile("\\b(a|an|the)\\b");
+    private static final String AUDIOBOOK_SUFFIX = "audiobook";
+    private static final Pattern NOT_ALPHANUMERIC_PATTERN = Pattern.compile("[^a-z\\d]+");
+    private static final Pattern QUOTE_PATTERN = Pattern.compile(StringStuff.QUOTE_CHAR_CLASS);
+
+    /**
+     * {@code s.toLowerCase().replaceAll("['’`\"]", "").replaceAll("\\b(a|an|the)\\b", "").replaceAll("[^a-z\\d]+", " ").trim()}
+     */
+    public static String alphaOnly(final String s) {
+        if (s == null) {
+            return null;
+        }
+        final String lower = s.toLowerCase();
+        final int length = lower.length();
+        for (int i = 0; i < length; i++) {
+            final char c = lower.charAt(i);
+            if (c >= '\u0300' && (Character.isSurrogate(c) || Character.getType(c) == Character.NON_SPACING_MARK)) {
+                // Regex word boundaries treat combining marks as part of the word before them.
+                final String unquoted = QUOTE_PATTERN.matcher(lower).replaceAll("");
+                final String noArticles = ARTICLE_PATTERN.matcher(unquoted).replaceAll("");
+                return NOT_ALPHANUMERIC_PATTERN.matcher(noArticles).replaceAll(" ").trim();
+            }
+        }
+        final StringBuilder sb = new StringBuilder(length);
+        boolean separated = false;
+        int at = 0;
+        while (at < length) {
+            final char c = lower.charAt(at);
+            if (isQuote(c)) {
+                at++;
+            } else if (isWordChar(c)) {
+                final int start = at;
+                while (at < length && (isWordChar(lower.charAt(at)) || isQuote(lower.charAt(at)))) {
+                    at++;
+                }
+                if (isArticle(lower, start, at)) {
+                    continue;
+                }
+                for (int i = start; i < at; i++) {
+                    final char w = lower.charAt(i);
+                    if (isAsciiLowerOrDigit(w)) {
+                        if (separated && !sb.isEmpty()) {
+                            sb.append(' ');
+                        }
+                        separated = false;
+                        sb.append(w);
+                    } else if (!isQuote(w)) {
+                        separated = true;
+                    }
+                }
+            } else {
+                separated = true;
+                at++;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * {@code s.replaceAll("[^a-zA-Z\\d]", "")}
+     */
+    public static String alphanumericOnly(@NonNull final String s) {
+        final int length = s.length();
+        for (int i = 0; i < length; i++) {
+            if (!isAsciiLetterOrDigit(s.charAt(i))) {
+                final StringBuilder sb = new StringBuilder(length);
+                sb.append(s, 0, i);
+                for (int j = i + 1; j < length; j++) {
+                    final char c = s.charAt(j);
+                    if (isAsciiLetterOrDigit(c)) {
+                        sb.append(c);
+                    }
+                }
+                return sb.toString();
+            }
+        }
+        return s;
+    }
+
+    /**
+     * {@code s.replaceAll("\\.", " ").replaceAll("\\s+", " ")}
+     */
+    public static String collapseDotsAndSpaces(@NonNull final String s) {
+        final int length = s.length();
+        final StringBuilder sb = new StringBuilder(length);
+        boolean inSpace = false;
+        for (int i = 0; i < length; i++) {
+            final char c = s.charAt(i);
+            if (c == '.' || isRegexSpace(c)) {
+                if (!inSpace) {
+                    sb.append(' ');
+                    inSpace = true;
+                }
+            } else {
+                sb.append(c);
+                inSpace = false;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * {@code s.replaceAll("[.,:/?]+", " ").replaceAll("\\s+-+\\s+", " ").replaceAll("\\s+", " ")}
+     */
+    public static String collapseTitlePunctuation(@NonNull final String s) {
+        final int length = s.length();
+        final char[] spaced = new char[length];
+        for (int i = 0; i < length; i++) {
+            final char c = s.charAt(i);
+            spaced[i] = isTitlePunctuation(c) ? ' ' : c;
+        }
+        final StringBuilder sb = new StringBuilder(length);
+        boolean inSpace = false;
+        int at = 0;
+        while (at < length) {
+            final char c = spaced[at];
+            if (!isRegexSpace(c)) {
+                // Runs of title punctuation became a single space in the first replacement.
+                sb.append(c);
+                inSpace = false;
+                at++;
+                continue;
+            }
+            int end = at;
+            while (end < length && isRegexSpace(spaced[end])) {
+                end++;
+            }
+            int dashEnd = end;
+            while (dashEnd < length && spaced[dashEnd] == '-') {
+                dashEnd++;
+            }
+            if (dashEnd > end && dashEnd < length && isRegexSpace(spaced[dashEnd])) {
+                end = dashEnd;
+                while (end < length && isRegexSpace(spaced[end])) {
+                    end++;
+                }
+            }
+            if (!inSpace) {
+                sb.append(' ');
+                inSpace = true;
+            }
+            at = end;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * {@code s.replaceAll("['\"`]+", "").replaceAll("[^\\da-z]+", "-")}
+     */
+    public static String fileNamePart(@NonNull final String s) {
+        final int length = s.length();
+        final StringBuilder sb = new StringBuilder(length);
+        boolean inDash = false;
+        for (int i = 0; i < length; i++) {
+            final char c = s.charAt(i);
+            if (c == '\'' || c == '"' || c == '`') {
+                continue;
+            }
+            if (isAsciiLowerOrDigit(c)) {
+                sb.append(c);
+                inDash = false;
+            } else if (!inDash) {
+                sb.append('-');
+                inDash = true;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean isArticle(final String s, final int start, final int end) {
+        int found = 0;
+        final char[] word = new char[3];
+        for (int i = start; i < end; i++) {
+            final char c = s.charAt(i);
+            if (isQuote(c)) {
+                continue;
+            }
+            if (found == 3) {
+                return false;
+            }
+            word[found++] = c;
+        }
+        return (found == 1 && word[0] == 'a')
+            || (found == 2 && word[0] == 'a' && word[1] == 'n')
+            || (found == 3 && word[0] == 't' && word[1] == 'h' && word[2] == 'e');
+    }
+
+    private static boolean isAsciiLetterOrDigit(final char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+
+    private static boolean isAsciiLowerOrDigit(final char c) {
+        return (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9');
+    }
+
+    private static boolean isLineTerminator(final char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    private static boolean isQuote(final char c) {
+        return c == '\'' || c == '’' || c == '`' || c == '"';
+    }
+
+    /**
+     * Matches the regex {@code \s} character class, which is narrower than {@link Character#isWhitespace}.
+     */
+    public static boolean isRegexSpace(final char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static boolean isTitlePunctuation(final char c) {
+        return c == '.' || c == ',' || c == ':' || c == '/' || c == '?';
+    }
+
+    /**
+     * Matches the regex {@code \w} character class.
+     */
+    private static boolean isWordChar(final char c) {
+        return isAsciiLetterOrDigit(c) || c == '_';
+    }
+
+    /**
+     * {@code s.replaceAll("(?i)\\s+audiobook$", "")}
+     */
+    public static String withoutAudiobookSuffix(@NonNull final String s) {
+        int end = s.length();
+        if (end > 0 && isLineTerminator(s.charAt(end - 1))) {
+            // Without MULTILINE, $ also matches just before a final line terminator.
+            end--;
+            if (end > 0 && s.charAt(end) == '\n' && s.charAt(end - 1) == '\r') {
+                end--;
+            }
+        }
+        final int suffixAt = end - AUDIOBOOK_SUFFIX.length();
+        if (suffixAt < 1 || !isRegexSpace(s.charAt(suffixAt - 1))) {
+            return s;
+        }
+        for (int i = 0; i < AUDIOBOOK_SUFFIX.length(); i++) {
+            final char c = s.charAt(suffixAt + i);
+            final char lower = (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+            if (lower != AUDIOBOOK_SUFFIX.charAt(i)) {
+                return s;
+            }
+        }
+        int start = suffixAt - 1;
+        while (start > 0 && isRegexSpace(s.charAt(start - 1))) {
+            start--;
+        }
+        return s.substring(0, start) + s.substring(end);
+    }
+
+    /**
+     * {@code s.replaceAll("(?i)\\s+\\([^)]*(?:unabridged|book\\s+\\d)[^)]*\\)", "")}
+     */
+    public static String withoutEdition(@NonNull final String s) {
+        if (s.indexOf('(') < 0) {
+            return s;
+        }
+        return TITLE_EDITION_PATTERN.matcher(s).replaceAll("");
+    }
+}
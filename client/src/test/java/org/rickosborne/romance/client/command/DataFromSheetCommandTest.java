@@ -0,0 +1,65 @@
+package org.rickosborne.romance.client.command;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.rickosborne.romance.NamingConvention;
+import org.rickosborne.romance.db.DiffPlan;
+import org.rickosborne.romance.db.json.JsonStore;
+import org.rickosborne.romance.db.json.JsonStoreFactory;
+import org.rickosborne.romance.db.model.BookModel;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class DataFromSheetCommandTest {
+    private static BookModel book(final String title, final String publisherName) {
+        final BookModel book = BookModel.build();
+        book.setTitle(title);
+        book.setAuthorName("Alice Brown");
+        book.setDatePublish(LocalDate.of(2020, 1, 1));
+        book.setPublisherName(publisherName);
+        return book;
+    }
+
+    private static JsonStore<BookModel> storeWithTeapot() throws IOException {
+        final JsonStore<BookModel> jsonStore = new JsonStoreFactory(Files.createTempDirectory("sheet"), new NamingConvention())
+            .buildJsonStore(BookModel.class);
+        final BookModel stored = book("Teapot", null);
+        stored.setGenre("romance");
+        jsonStore.save(stored);
+        return jsonStore;
+    }
+
+    /**
+     * Rows sharing an id end up as if each row had been looked up and saved in turn.
+     */
+    @Test
+    void repeatedIdsMergeInSheetOrder() throws IOException {
+        final List<BookModel> records = List.of(book("Teapot", null), book("Kettle", "Other"), book("Teapot", "Second"), book("Teapot", "Third"));
+        records.get(0).setGenre("cozy");
+        final JsonStore<BookModel> sequential = storeWithTeapot();
+        for (final BookModel record : records) {
+            sequential.saveIfChanged(sequential.getModelSchema().mergeModels(sequential.findLikeFromCache(record), record), false);
+        }
+        final JsonStore<BookModel> joined = storeWithTeapot();
+        final List<BookModel> existing = new ArrayList<>();
+        DataFromSheetCommand.mergeIntoJson(records, joined, (record, before, updated) -> existing.add(before));
+        assertEquals(4, existing.size());
+        assertNull(existing.get(0));
+        existing.subList(1, 4).forEach(Assertions::assertNotNull);
+        for (final BookModel record : records) {
+            final BookModel expected = sequential.findLike(record);
+            final BookModel actual = joined.findLike(record);
+            assertFalse(DiffPlan.forModelType(BookModel.class).hasChanged(expected, actual), () -> joined.diffModels(expected, actual).asDiffLines());
+        }
+        assertEquals("Second", joined.findLike(records.get(0)).getPublisherName());
+        assertEquals("cozy", joined.findLike(records.get(0)).getGenre());
+    }
+}
@@ -0,0 +1,88 @@
+package org.rickosborne.romance.client.html;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class HostRateLimiterTest {
+    private static final long SECOND = Duration.ofSeconds(1).toNanos();
+
+    @Test
+    void burstThenOnePerInterval() {
+        final AtomicLong now = new AtomicLong(100 * SECOND);
+        final HostRateLimiter limiter = new HostRateLimiter(now::get).configure("example.com", Duration.ofSeconds(5), 2);
+        assertEquals(0, limiter.reserve("www.example.com", null));
+        assertEquals(0, limiter.reserve("www.example.com", null));
+        assertEquals(5 * SECOND, limiter.reserve("www.example.com", null));
+        assertEquals(10 * SECOND, limiter.reserve("WWW.Example.com", null));
+        now.addAndGet(60 * SECOND);
+        assertEquals(0, limiter.reserve("www.example.com", null));
+        assertEquals(0, limiter.reserve("www.example.com", null));
+        assertEquals(5 * SECOND, limiter.reserve("www.example.com", null));
+    }
+
+    @Test
+    void fallbackOnlyForHostsWithoutRules() {
+        final AtomicLong now = new AtomicLong(0);
+        final HostRateLimiter limiter = new HostRateLimiter(now::get);
+        assertEquals(0, limiter.reserve("other.org", null));
+        assertEquals(0, limiter.reserve("other.org", null));
+        assertEquals(0, limiter.reserve("other.org", Duration.ofSeconds(3)));
+        assertEquals(3 * SECOND, limiter.reserve("other.org", Duration.ofSeconds(3)));
+    }
+
+    @Test
+    void penalizeDoublesIntervalThenRelaxes() {
+        final AtomicLong now = new AtomicLong(0);
+        final HostRateLimiter limiter = new HostRateLimiter(now::get).configure("example.com", Duration.ofSeconds(5), 2);
+        assertEquals(0, limiter.reserve("example.com", null));
+        limiter.penalize("example.com", Duration.ofSeconds(30));
+        // The pause, then turns every 10s with no burst saved up.
+        assertEquals(30 * SECOND, limiter.reserve("example.com", null));
+        assertEquals(40 * SECOND, limiter.reserve("example.com", null));
+        now.addAndGet(600 * SECOND);
+        for (int i = 0; i < 100; i++) {
+            limiter.relax("example.com");
+        }
+        assertEquals(0, limiter.reserve("example.com", null));
+        assertEquals(0, limiter.reserve("example.com", null));
+        assertEquals(5 * SECOND, limiter.reserve("example.com", null));
+    }
+
+    @Test
+    void penalizedHostWithoutRuleRecovers() {
+        final AtomicLong now = new AtomicLong(0);
+        final HostRateLimiter limiter = new HostRateLimiter(now::get);
+        limiter.penalize("api.other.org", Duration.ofSeconds(30));
+        assertEquals(30 * SECOND, limiter.reserve("api.other.org", null));
+        assertEquals(30 * SECOND, limiter.reserve("api.other.org", null));
+        now.addAndGet(30 * SECOND);
+        limiter.relax("api.other.org");
+        assertEquals(0, limiter.reserve("api.other.org", null));
+        assertEquals(0, limiter.reserve("api.other.org", null));
+        limiter.penalize("api.other.org", null);
+        assertEquals(HostRateLimiter.DEFAULT_PAUSE.toNanos(), limiter.reserve("api.other.org", null));
+    }
+
+    @Test
+    void penalizedHostEasesBackToFallback() {
+        final AtomicLong now = new AtomicLong(0);
+        final HostRateLimiter limiter = new HostRateLimiter(now::get);
+        limiter.penalize("other.org", Duration.ofSeconds(10), Duration.ofSeconds(3));
+        assertEquals(10 * SECOND, limiter.reserve("other.org", null));
+        assertEquals(16 * SECOND, limiter.reserve("other.org", null));
+        now.addAndGet(600 * SECOND);
+        limiter.relax("other.org");
+        assertEquals(0, limiter.reserve("other.org", null));
+        assertEquals(5250 * SECOND / 1000 - 1, limiter.reserve("other.org", null));
+        now.addAndGet(600 * SECOND);
+        for (int i = 0; i < 100; i++) {
+            limiter.relax("other.org");
+        }
+        assertEquals(0, limiter.reserve("other.org", null));
+        assertEquals(3 * SECOND, limiter.reserve("other.org", null));
+    }
+}
@@ -0,0 +1,169 @@
+package org.rickosborne.romance.db;
+
+import org.junit.jupiter.api.Test;
+import org.rickosborne.romance.db.model.BookModel;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CachingModelStoreTest {
+    private static BookModel book(final String title) {
+        final BookModel book = BookModel.build();
+        book.setTitle(title);
+        return book;
+    }
+
+    @Test
+    void delegatesFuzzyLookupsByFoundId() {
+        final CountingStore store = new CountingStore("a");
+        final CachingModelStore<BookModel> cached = CachingModelStore.<BookModel>builder().delegate(store).build();
+        assertEquals("a", cached.findLike(book("a: A Novel")).getTitle());
+        assertEquals(1, store.likeLookups);
+        assertNotNull(cached.findByIdFromCache("a"));
+        assertEquals("a", cached.findLike(book("a")).getTitle());
+        assertEquals("a", cached.findLikeOrMatch(book("a"), b -> false).getTitle());
+        assertEquals(1, store.likeLookups);
+        assertEquals(0, store.lookups);
+        assertNull(cached.findLike(book("b")));
+        assertNull(cached.findLike(book("b")));
+        assertEquals(3, store.likeLookups);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        final CountingStore store = new CountingStore("a", "b", "c");
+        final CachingModelStore<BookModel> cached = CachingModelStore.<BookModel>builder().delegate(store).maxSize(2).build();
+        cached.findById("a");
+        cached.findById("b");
+        cached.findById("a");
+        cached.findById("c");
+        assertNotNull(cached.findByIdFromCache("a"));
+        assertNull(cached.findByIdFromCache("b"));
+        assertEquals(1, cached.getEvictions().get());
+        assertEquals(3, store.lookups);
+    }
+
+    @Test
+    void expiresAfterTtl() {
+        final AtomicLong now = new AtomicLong();
+        final CountingStore store = new CountingStore("a");
+        final CachingModelStore<BookModel> cached = CachingModelStore.<BookModel>builder()
+            .delegate(store)
+            .nanoClock(now::get)
+            .ttl(Duration.ofSeconds(10))
+            .build();
+        cached.findById("a");
+        now.addAndGet(Duration.ofSeconds(9).toNanos());
+        cached.findById("a");
+        assertEquals(1, store.lookups);
+        now.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertNull(cached.findByIdFromCache("a"));
+        cached.findById("a");
+        assertEquals(2, store.lookups);
+    }
+
+    @Test
+    void readsThroughOnceAndCountsHits() {
+        final CountingStore store = new CountingStore("a");
+        final CachingModelStore<BookModel> cached = CachingModelStore.<BookModel>builder().delegate(store).build();
+        assertNull(cached.findByIdFromCache("a"));
+        final BookModel first = cached.findById("a");
+        final BookModel second = cached.findById("a");
+        assertEquals("a", second.getTitle());
+        assertNotSame(first, second);
+        assertEquals(1, store.lookups);
+        assertEquals(1, cached.getHits().get());
+        assertEquals(1, cached.getMisses().get());
+    }
+
+    @Test
+    void remembersMissesOnlyWhenNegative() {
+        final CountingStore store = new CountingStore();
+        final CachingModelStore<BookModel> plain = CachingModelStore.<BookModel>builder().delegate(store).build();
+        plain.findById("x");
+        plain.findById("x");
+        assertEquals(2, store.lookups);
+        final CachingModelStore<BookModel> negative = CachingModelStore.<BookModel>builder().delegate(store).negative(true).build();
+        negative.findById("x");
+        negative.findById("x");
+        assertEquals(3, store.lookups);
+    }
+
+    @Test
+    void saveWritesThrough() {
+        final CountingStore store = new CountingStore();
+        final CachingModelStore<BookModel> cached = CachingModelStore.<BookModel>builder().delegate(store).negative(true).build();
+        assertNull(cached.findById("n"));
+        cached.save(book("n"));
+        assertEquals("n", cached.findByIdFromCache("n").getTitle());
+        assertEquals(1, store.saves);
+    }
+
+    private static class CountingStore implements ModelStore<BookModel> {
+        private final Map<String, BookModel> books = new HashMap<>();
+        private int likeLookups = 0;
+        private int lookups = 0;
+        private int saves = 0;
+
+        CountingStore(final String... titles) {
+            for (final String title : titles) {
+                books.put(title, book(title));
+            }
+        }
+
+        @Override
+        public BookModel findById(final String id) {
+            lookups++;
+            return books.get(id);
+        }
+
+        @Override
+        public BookModel findByIdFromCache(final String id) {
+            return books.get(id);
+        }
+
+        /**
+         * Ignores any subtitle, as a fuzzy lookup might.
+         */
+        @Override
+        public BookModel findLike(final BookModel model) {
+            likeLookups++;
+            return books.get(model.getTitle().replaceAll(":.*", ""));
+        }
+
+        @Override
+        public DbModel getDbModel() {
+            return DbModel.Book;
+        }
+
+        @Override
+        public Class<BookModel> getModelType() {
+            return BookModel.class;
+        }
+
+        @Override
+        public String idFromModel(final BookModel model) {
+            return model.getTitle();
+        }
+
+        @Override
+        public BookModel save(final BookModel model) {
+            saves++;
+            books.put(model.getTitle(), model);
+            return model;
+        }
+
+        @Override
+        public Stream<BookModel> stream() {
+            return books.values().stream();
+        }
+    }
+}
@@ -2,6 +2,9 @@ package org.rickosborne.romance.db.model;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+import java.util.stream.Collectors;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 class BookModelTest {
@@ -13,6 +16,20 @@ class BookModelTest {
         );
     }
 
+    @Test
+    void hashKeysFollowTitleAndAuthorChanges() {
+        final BookModel book = BookModel.builder().authorName("Alice Brown").title("Teapot").build();
+        assertEquals("alice brown\tteapot", BookModel.hashKeyForBook(book));
+        assertEquals(List.of("Alice Brown\tteapot"), BookModel.hashKeysForBook(book).collect(Collectors.toList()));
+        book.setTitle("Anchor");
+        book.setAuthorName("Alice Brown & Bob Smith");
+        assertEquals("alice brown, bob smith\tanchor", BookModel.hashKeyForBook(book));
+        assertEquals(List.of("Alice Brown\tanchor", "Bob Smith\tanchor"), BookModel.hashKeysForBook(book).collect(Collectors.toList()));
+        final BookModel rebuilt = book.toBuilder().title("Fish").build();
+        assertEquals("alice brown, bob smith\tfish", BookModel.hashKeyForBook(rebuilt));
+        assertEquals("alice brown, bob smith\tanchor", BookModel.hashKeyForBook(book));
+    }
+
     @Test
     void setNarratorName() {
         final BookModel book = BookModel.build();
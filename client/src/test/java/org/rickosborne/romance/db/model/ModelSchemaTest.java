@@ -0,0 +1,130 @@
+package org.rickosborne.romance.db.model;
+
+import org.junit.jupiter.api.Test;
+import org.rickosborne.romance.db.Importable;
+import org.rickosborne.romance.util.BookRating;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ModelSchemaTest {
+    private static final String[] NAMES = {null, "", " ", "Alice Brown", "Bob Smith", "Carol Jones & Dan Lee", "Erin"};
+    private static final String[] WORDS = {null, "", " ", "Teapot", "Anchor", "Fish", "A Long Title"};
+
+    /**
+     * The pairwise merge as it was before {@link MergePlan}.
+     */
+    private static <M> M legacyMerge(final ModelSchema<M> schema, final M before, final M after) {
+        if (before == null) {
+            return after;
+        } else if (after == null) {
+            return before;
+        }
+        final M result = schema.buildModel();
+        for (final SchemaAttribute<M, Object> attribute : schema.getAttributes()) {
+            final Object beforeValue = attribute.getAttribute(before);
+            final Object afterValue = attribute.getAttribute(after);
+            final Object resultValue = attribute.chooseAttributeValue(beforeValue, afterValue);
+            if (resultValue == null) {
+                continue;
+            }
+            final Class<?> attributeType = attribute.getAttributeType();
+            if (attributeType == Set.class && beforeValue != null) {
+                @SuppressWarnings("unchecked") final Set<Object> resultSet = (Set<Object>) attribute.getAttribute(result);
+                resultSet.addAll((Set<?>) beforeValue);
+                resultSet.addAll((Set<?>) afterValue);
+            } else if (attributeType == Map.class && beforeValue != null) {
+                @SuppressWarnings("unchecked") final Map<Object, Object> resultMap = (Map<Object, Object>) attribute.getAttribute(result);
+                resultMap.putAll((Map<?, ?>) beforeValue);
+                resultMap.putAll((Map<?, ?>) afterValue);
+            } else if (Importable.class.isAssignableFrom(attributeType) && beforeValue != null) {
+                @SuppressWarnings("unchecked") final Importable<Object> resultImportable = (Importable<Object>) attribute.getAttribute(result);
+                resultImportable.importFrom(beforeValue);
+                resultImportable.importFrom(afterValue);
+            } else if (attributeType == Integer.class) {
+                final Integer beforeInt = (Integer) beforeValue;
+                final Integer afterInt = (Integer) afterValue;
+                if (afterInt != null && (beforeInt == null || afterInt > 0)) {
+                    attribute.setAttribute(result, afterValue);
+                } else {
+                    attribute.setAttribute(result, beforeValue);
+                }
+            } else {
+                attribute.setAttribute(result, resultValue);
+            }
+        }
+        return result;
+    }
+
+    private static <T> T pick(final Random random, final T[] options) {
+        return options[random.nextInt(options.length)];
+    }
+
+    private static BookModel randomBook(final Random random) {
+        if (random.nextInt(8) == 0) {
+            return null;
+        }
+        final BookModel book = BookModel.builder()
+            .audiobookStoreRatings(random.nextBoolean() ? null : random.nextInt(3))
+            .datePublish(random.nextBoolean() ? null : LocalDate.of(2020, 1 + random.nextInt(3), 1 + random.nextInt(28)))
+            .durationHours(random.nextBoolean() ? null : random.nextInt(2000) / 100d)
+            .genre(pick(random, WORDS))
+            .narratorName(pick(random, NAMES))
+            .pages(random.nextBoolean() ? null : random.nextInt(3) * 100)
+            .seriesName(pick(random, WORDS))
+            .synopsis(pick(random, WORDS))
+            .title(pick(random, WORDS))
+            .build();
+        book.setAuthorName(pick(random, NAMES));
+        book.getMc1().setName(pick(random, NAMES));
+        book.getMc2().setGender(pick(random, WORDS));
+        if (random.nextBoolean()) {
+            book.getRatings().put(pick(random, BookRating.values()), (double) random.nextInt(5));
+        }
+        if (random.nextBoolean()) {
+            book.getTags().add(pick(random, WORDS) + "");
+        }
+        return book;
+    }
+
+    @Test
+    void mergeModelsMatchesPairwiseFold() {
+        final BookSchema schema = new BookSchema();
+        final Random random = new Random(11);
+        for (int trial = 0; trial < 2_000; trial++) {
+            final BookModel[] books = new BookModel[2 + random.nextInt(6)];
+            for (int b = 0; b < books.length; b++) {
+                books[b] = randomBook(random);
+            }
+            BookModel expected = books[0];
+            for (int b = 1; b < books.length; b++) {
+                expected = legacyMerge(schema, expected, books[b]);
+            }
+            final BookModel actual = schema.mergeModels(books);
+            if (expected == null) {
+                assertNull(actual);
+                continue;
+            }
+            for (final BookAttributes attribute : BookAttributes.values()) {
+                final Object want = attribute.getAttribute(expected);
+                final Object got = attribute.getAttribute(actual);
+                assertEquals(Objects.toString(want), Objects.toString(got), "trial " + trial + " " + attribute);
+            }
+        }
+    }
+
+    @Test
+    void mergeModelsReturnsLoneModel() {
+        final BookSchema schema = new BookSchema();
+        final BookModel book = BookModel.builder().title("Teapot").build();
+        assertSame(book, schema.mergeModels(null, book, null));
+        assertNull(schema.mergeModels((BookModel) null, null));
+    }
+}
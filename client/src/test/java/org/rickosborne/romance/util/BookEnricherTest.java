@@ -0,0 +1,170 @@
+package org.rickosborne.romance.util;
+
+import org.junit.jupiter.api.Test;
+import org.rickosborne.romance.client.AudiobookStoreSuggestService;
+import org.rickosborne.romance.client.GoodreadsService;
+import org.rickosborne.romance.client.html.AudiobookStoreHtml;
+import org.rickosborne.romance.client.html.GoodreadsHtml;
+import org.rickosborne.romance.db.DiffPlan;
+import org.rickosborne.romance.db.model.AuthorModel;
+import org.rickosborne.romance.db.model.BookModel;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.rickosborne.romance.util.StringStuff.urlFromString;
+
+public class BookEnricherTest {
+    private static final URL GR_KETTLE_FOUND = urlFromString("https://www.goodreads.com/book/show/2-kettle-found");
+    private static final URL GR_KETTLE_LINKED = urlFromString("https://www.goodreads.com/book/show/2-kettle");
+    private static final URL GR_TEAPOT = urlFromString("https://www.goodreads.com/book/show/1-teapot");
+    private static final URL TABS_KETTLE = urlFromString("https://audiobookstore.com/audiobooks/kettle.aspx");
+    private static final URL TABS_TEAPOT = urlFromString("https://audiobookstore.com/audiobooks/teapot.aspx");
+    private static final URL TABS_TRIVET = urlFromString("https://audiobookstore.com/audiobooks/trivet.aspx");
+
+    private static BookModel book(final String title, final String sku) {
+        return BookModel.builder().title(title).authorName("Alice Brown").audiobookStoreSku(sku).build();
+    }
+
+    private static BookModel information(final String title, final String sku, final URL storeUrl) {
+        return BookModel.builder()
+            .title(title)
+            .authorName("Alice Brown")
+            .audiobookStoreSku(sku)
+            .audiobookStoreUrl(storeUrl)
+            .datePublish(LocalDate.of(2020, 1, 1))
+            .narratorName("Nora Reader")
+            .build();
+    }
+
+    /**
+     * The chain {@link BookBot#extendAll(BookModel)} used to run, one step after another.
+     */
+    private static BookModel sequential(final BookBot bot, final BookModel original) {
+        BookModel model = original;
+        model = bot.extendWithAudiobookStorePurchase(model);
+        model = bot.extendWithJsonStored(model);
+        model = bot.extendWithAudiobookStoreBookInformation(model);
+        model = bot.extendWithAudiobookStoreSuggestion(model);
+        model = bot.extendWithAudiobookStoreDetails(model);
+        model = bot.extendWithGoodReadsAutoComplete(model);
+        model = bot.extendWithGoodReadsDetails(model);
+        return model;
+    }
+
+    @Test
+    void mergedLookupsMatchSequentialChain() throws IOException {
+        final List<BookModel> originals = List.of(book("Teapot", "S1"), book("Kettle", "S2"), book("Trivet", null));
+        try (
+            final BookBot sequentialBot = new StubBot();
+            final BookBot concurrentBot = new StubBot()
+        ) {
+            final List<BookModel> enriched = concurrentBot.extendAll(originals, null);
+            for (int i = 0; i < originals.size(); i++) {
+                final BookModel expected = sequential(sequentialBot, originals.get(i));
+                final BookModel actual = enriched.get(i);
+                assertFalse(DiffPlan.forModelType(BookModel.class).hasChanged(expected, actual), () -> sequentialBot.getBookStore().diffModels(expected, actual).asDiffLines());
+            }
+            // The store page links Goodreads, so the sequential chain never searched for Kettle.
+            assertEquals(GR_KETTLE_LINKED, enriched.get(1).getGoodreadsUrl());
+            assertEquals("Linked Press", enriched.get(1).getPublisherName());
+            assertEquals(TABS_TRIVET, enriched.get(2).getAudiobookStoreUrl());
+        }
+    }
+
+    /**
+     * Every remote source answers from these maps instead of the network.
+     */
+    private static class StubBot extends BookBot {
+        private static final Map<URL, BookModel> GOODREADS_PAGES = Map.of(
+            GR_TEAPOT, BookModel.builder().goodreadsUrl(GR_TEAPOT).pages(300).genre("cozy").build(),
+            GR_KETTLE_FOUND, BookModel.builder().goodreadsUrl(GR_KETTLE_FOUND).publisherName("Found Press").build(),
+            GR_KETTLE_LINKED, BookModel.builder().goodreadsUrl(GR_KETTLE_LINKED).publisherName("Linked Press").build()
+        );
+        private static final Map<String, BookModel> GOODREADS_SEARCH = Map.of(
+            "Teapot", BookModel.builder().title("Teapot").goodreadsUrl(GR_TEAPOT).build(),
+            "Kettle", BookModel.builder().title("Kettle").goodreadsUrl(GR_KETTLE_FOUND).build()
+        );
+        private static final Map<String, BookModel> INFORMATION = Map.of(
+            "S1", information("Teapot", "S1", TABS_TEAPOT),
+            "S2", information("Kettle", "S2", TABS_KETTLE),
+            "S3", information("Trivet", "S3", TABS_TRIVET)
+        );
+        private static final Map<URL, BookModel> STORE_PAGES = Map.of(
+            TABS_TEAPOT, BookModel.builder().genre("romance").build(),
+            TABS_KETTLE, BookModel.builder().genre("romance").goodreadsUrl(GR_KETTLE_LINKED).build(),
+            TABS_TRIVET, BookModel.builder().genre("fantasy").build()
+        );
+
+        StubBot() throws IOException {
+            super(null, null, null, Files.createTempDirectory("enricher"), null, false, null);
+        }
+
+        @Override
+        public BookModel fetchAudiobookStoreBookInformation(final BookModel original) {
+            return original.getAudiobookStoreSku() == null ? null : INFORMATION.get(original.getAudiobookStoreSku());
+        }
+
+        @Override
+        public AudiobookStoreHtml getAudiobookStoreHtml() {
+            return new AudiobookStoreHtml(null, null) {
+                @Override
+                public BookModel getBookModelFromBook(final URL url) {
+                    return STORE_PAGES.get(url);
+                }
+
+                @Override
+                public List<BookModel> getBooksForAuthor(final AuthorModel authorModel) {
+                    return List.of();
+                }
+            };
+        }
+
+        @Override
+        public AudiobookStoreSuggestService getAudiobookStoreSuggestService() {
+            return (AudiobookStoreSuggestService) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{AudiobookStoreSuggestService.class}, (proxy, method, args) -> {
+                if (method.getName().equals("findBookLike") && args.length == 2) {
+                    @SuppressWarnings("unchecked") final UnaryOperator<BookModel> filter = (UnaryOperator<BookModel>) args[1];
+                    return filter.apply(BookModel.builder().title("Trivet").audiobookStoreSku("S3").build());
+                }
+                if (method.getName().equals("findAuthorLike")) {
+                    return null;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+        }
+
+        @Override
+        public GoodreadsHtml getGoodreadsHtml() {
+            return new GoodreadsHtml(null) {
+                @Override
+                public BookModel getBookModel(final URL url) {
+                    return GOODREADS_PAGES.get(url);
+                }
+            };
+        }
+
+        @Override
+        public GoodreadsService getGoodreadsService() {
+            return (GoodreadsService) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{GoodreadsService.class}, (proxy, method, args) -> {
+                if (method.getName().equals("findBook")) {
+                    return GOODREADS_SEARCH.get((String) args[0]);
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+        }
+
+        @Override
+        public List<BookModel> getTabsAudiobooks() {
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package org.rickosborne.romance.util;
+
+import org.junit.jupiter.api.Test;
+import org.rickosborne.romance.db.model.AuthorModel;
+import org.rickosborne.romance.db.model.BookModel;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.rickosborne.romance.util.AuthorMerger.bookWithAuthorLikeFilter;
+import static org.rickosborne.romance.util.BookMerger.bookLikeFilter;
+
+class BookMatchIndexTest {
+    private static final List<BookModel> BOOKS = List.of(
+        book("The Teapot", "Alice Brown"),
+        book("Teapot: A Novel", "Alice Brown, Bob Smith"),
+        book("Teapot, Book 2", "Bob Smith"),
+        book("Teapots", "Alice Brown"),
+        book("Anchor", "Carol White & Dan Black"),
+        book("An Anchor: The Fish", "Dan Black"),
+        book("", "Alice Brown"),
+        book(null, "Alice Brown"),
+        book("Teapot", null),
+        book("Teapot", " "),
+        book("Don't Stop", "Eve O'Neil"),
+        book("Dont Stop: Again", "Eve ONeil")
+    );
+
+    private static BookModel book(final String title, final String authorName) {
+        final BookModel book = BookModel.build();
+        book.setTitle(title);
+        book.setAuthorName(authorName);
+        return book;
+    }
+
+    @Test
+    void findLikeMatchesBookLikeFilter() {
+        final BookMatchIndex index = BookMatchIndex.of(BOOKS);
+        for (final BookModel like : BOOKS) {
+            final List<BookModel> expected = BOOKS.stream().filter(bookLikeFilter(like)).collect(Collectors.toList());
+            assertEquals(expected, index.findLike(like), like.toString());
+        }
+        final BookModel probe = book("Teapot", "Bob Smith, Someone Else");
+        assertEquals(BOOKS.stream().filter(bookLikeFilter(probe)).collect(Collectors.toList()), index.findLike(probe));
+    }
+
+    @Test
+    void findWithAuthorLikeMatchesAuthorFilter() {
+        final BookMatchIndex index = BookMatchIndex.of(BOOKS);
+        for (final String name : List.of("Alice Brown", "Alice", "Bob Smith", "Dan Black, Carol White", "Eve O'Neil", "Nobody")) {
+            final AuthorModel author = AuthorModel.builder().name(name).build();
+            final List<BookModel> expected = BOOKS.stream().filter(bookWithAuthorLikeFilter(author)).collect(Collectors.toList());
+            assertEquals(expected, index.findWithAuthorLike(name), name);
+        }
+    }
+
+    @Test
+    void replaceKeepsIndexCurrent() {
+        final BookMatchIndex index = BookMatchIndex.of(BOOKS);
+        final BookModel before = BOOKS.get(3);
+        final BookModel after = book("Teacups", "Alice Brown");
+        index.replace(before, after);
+        assertEquals(List.of(), index.findLike(before));
+        assertEquals(List.of(after), index.findLike(book("Teacups", "Alice Brown")));
+        assertEquals(BOOKS.size(), index.size());
+    }
+}
@@ -0,0 +1,127 @@
+package org.rickosborne.romance.util;
+
+import org.junit.jupiter.api.Test;
+import org.rickosborne.romance.NamingConvention;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.rickosborne.romance.util.StringStuff.QUOTE_CHAR_CLASS;
+
+class TextNormalizerTest {
+    private static final String FUZZ_ALPHABET = "aAbBeEhHnNtTzZ09_ '’`\".,:/?-()\t\n\u000B\f\r  éİß\u0301";
+    private static final List<String> CORPUS = List.of(
+        "",
+        " ",
+        "A Teapot, An Anchor, & The Fish",
+        "A B C D Example",
+        "ABCD Example",
+        "abcd example",
+        "a b c d  Example",
+        "Some   Title",
+        "Lori Prince & Abby Craden",
+        "Foo part 1 of 2.mp4",
+        "Car of the Year",
+        "APPLE PIE",
+        "don't",
+        "Don’t Stop",
+        "the_x",
+        "a - - b",
+        "Title -- Subtitle",
+        "Title-Subtitle",
+        "The Fish (Unabridged)",
+        "The Fish (Book 2) Audiobook",
+        "Fish: A Novel (A Romance, Book 3)",
+        "Fish AUDIOBOOK",
+        "Fish audiobook ",
+        "J.R.R. Tolkien",
+        "İstanbul ß"
+    );
+
+    private static List<String> corpusWithFuzz() {
+        final List<String> texts = new ArrayList<>(CORPUS);
+        final Random random = new Random(20240101L);
+        for (int n = 0; n < 2000; n++) {
+            final StringBuilder sb = new StringBuilder();
+            final int length = random.nextInt(16);
+            for (int i = 0; i < length; i++) {
+                sb.append(FUZZ_ALPHABET.charAt(random.nextInt(FUZZ_ALPHABET.length())));
+            }
+            texts.add(sb.toString());
+            texts.add(sb + " audiobook");
+        }
+        return texts;
+    }
+
+    private static String legacyAlphaOnly(final String s) {
+        return s
+            .toLowerCase()
+            .replaceAll(QUOTE_CHAR_CLASS, "")
+            .replaceAll("\\b(a|an|the)\\b", "")
+            .replaceAll("[^a-z\\d]+", " ")
+            .trim();
+    }
+
+    private static String legacyCleanTitle(final String title) {
+        return title
+            .replace(" (Unabridged)", "")
+            .replaceAll("[.,:/?]+", " ")
+            .replaceAll("\\s+-+\\s+", " ")
+            .replaceAll("\\s+", " ")
+            .replaceAll("(?i)\\s+\\([^)]*(?:unabridged|book\\s+\\d)[^)]*\\)", "")
+            .replaceAll("(?i)\\s+audiobook$", "")
+            .trim();
+    }
+
+    private static String legacyFileNamePart(final String s) {
+        return s.replaceAll("['\"`]+", "").replaceAll("[^\\da-z]+", "-");
+    }
+
+    @Test
+    void alphaOnlyMatchesRegexChain() {
+        for (final String text : corpusWithFuzz()) {
+            assertEquals(legacyAlphaOnly(text), TextNormalizer.alphaOnly(text), text);
+        }
+    }
+
+    @Test
+    void alphanumericOnlyMatchesRegex() {
+        for (final String text : corpusWithFuzz()) {
+            assertEquals(text.replaceAll("[^a-zA-Z\\d]", ""), TextNormalizer.alphanumericOnly(text), text);
+        }
+    }
+
+    @Test
+    void cleanTitleMatchesRegexChain() {
+        for (final String text : corpusWithFuzz()) {
+            final String cleaned = TextNormalizer.withoutAudiobookSuffix(TextNormalizer.withoutEdition(
+                TextNormalizer.collapseTitlePunctuation(text.replace(" (Unabridged)", "")))).trim();
+            assertEquals(legacyCleanTitle(text), cleaned, text);
+        }
+    }
+
+    @Test
+    void collapseDotsAndSpacesMatchesRegexChain() {
+        for (final String text : corpusWithFuzz()) {
+            assertEquals(text.replaceAll("\\.", " ").replaceAll("\\s+", " "), TextNormalizer.collapseDotsAndSpaces(text), text);
+        }
+    }
+
+    @Test
+    void fileNamePartMatchesRegexChain() {
+        for (final String text : corpusWithFuzz()) {
+            final String lower = text.trim().toLowerCase();
+            assertEquals(legacyFileNamePart(lower), TextNormalizer.fileNamePart(lower), text);
+        }
+    }
+
+    @Test
+    void namingConventionKeepsKnownOutputs() {
+        final NamingConvention namingConvention = new NamingConvention();
+        assertEquals("a-teapot-an-anchor-the-fish", namingConvention.fileNameFromTexts("A Teapot, An Anchor, & The Fish"));
+        assertEquals("dont-stop-eve-oneil", namingConvention.fileNameFromTexts("Don't Stop", "  ", "Eve O'Neil"));
+        assertEquals("someTitle", namingConvention.formatText("Some   Title"));
+    }
+}